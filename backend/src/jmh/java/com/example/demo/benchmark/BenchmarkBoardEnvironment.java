@@ -0,0 +1,99 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.BackendApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Поднимает локальный PostgreSQL (embedded, без Docker) и контекст приложения поверх него.
+ * Используется бенчмарками, которым нужна настоящая база: загрузка доски, копирование.
+ */
+final class BenchmarkBoardEnvironment implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkBoardEnvironment(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    static BenchmarkBoardEnvironment start(String... extraArgs) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres")
+                        + "&reWriteBatchedInserts=true",
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                // снимки по расписанию исказили бы замеры
+                "--board.snapshot.interval-ms=3600000"));
+        args.addAll(List.of(extraArgs));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                // в jmh-jar тип приложения не определяется по classpath — задаём явно
+                .web(WebApplicationType.SERVLET)
+                // аргументы командной строки перекрывают application.properties
+                .run(args.toArray(String[]::new));
+        return new BenchmarkBoardEnvironment(postgres, context);
+    }
+
+    /**
+     * Порт, на котором поднялся встроенный Tomcat (server.port=0 — случайный).
+     */
+    int port() {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Создаёт доску с elementCount элементами; свойства похожи на реальные фигуры и мазки кисти.
+     */
+    UUID seedBoard(int elementCount) {
+        UUID uuid = UUID.randomUUID();
+        Long boardId = jdbcTemplate.queryForObject(
+                "INSERT INTO boards (uuid, title, temporary, revision) VALUES (?, ?, false, 1) RETURNING id",
+                Long.class, uuid, "bench-" + elementCount);
+        jdbcTemplate.update("""
+                INSERT INTO board_elements (board_id, type, x, y, width, height, z_index, order_key,
+                                            properties_json, revision)
+                SELECT ?, CASE WHEN g % 4 = 0 THEN 'BRUSH' ELSE 'SHAPE' END,
+                       (g % 200) * 60, (g / 200) * 60, 50, 40, g,
+                       'U' || lpad(to_hex(g), 11, '0') || 'V',
+                       CASE WHEN g % 4 = 0
+                            THEN '{"stroke":"#1e1e1e","strokeWidth":3,"points":[0,0,4.5,2.25,9,6.75,13.5,11.25,18,13.5,22.5,18]}'
+                            ELSE '{"shape":"rect","fill":"#ffd43b","stroke":"#1e1e1e","strokeWidth":2,"cornerRadius":8}'
+                       END::jsonb,
+                       1
+                FROM generate_series(1, ?) AS g
+                """, boardId, elementCount);
+        return uuid;
+    }
+
+    List<Long> elementIds(UUID boardUuid, int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT e.id FROM board_elements e JOIN boards b ON b.id = e.board_id
+                WHERE b.uuid = ? ORDER BY e.id LIMIT ?
+                """, Long.class, boardUuid, limit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.CborConfig;
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.mapper.BoardElementMapper;
+import com.example.demo.model.Board;
+import com.example.demo.model.BoardElement;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг сущностей в DTO и сериализация доски в JSON без базы данных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardElementMapperBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int elements;
+
+    private final BoardElementMapper mapper = new BoardElementMapper();
+    // тот же набор модулей и настроек, что и у ObjectMapper в приложении
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cborMapper = cborMapper();
+
+    private List<BoardElement> entities;
+    private List<BoardElementDto> dtos;
+    private Map<String, Object> properties;
+
+    @Setup
+    public void setUp() {
+        Board board = new Board();
+        board.setId(1L);
+
+        entities = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            BoardElement element = new BoardElement();
+            element.setId((long) i + 1);
+            element.setBoard(board);
+            element.setType(i % 4 == 0 ? BoardElement.ElementType.BRUSH : BoardElement.ElementType.SHAPE);
+            element.setX((i % 200) * 60.0);
+            element.setY((i / 200) * 60.0);
+            element.setWidth(50);
+            element.setHeight(40);
+            element.setZIndex(i);
+            element.setOrderKey(String.format("U%011xV", i + 1));
+            element.setPropertiesJson(i % 4 == 0
+                    ? "{\"stroke\":\"#1e1e1e\",\"strokeWidth\":3,\"points\":[0,0,4.5,2.25,9,6.75,13.5,11.25]}"
+                    : "{\"shape\":\"rect\",\"fill\":\"#ffd43b\",\"stroke\":\"#1e1e1e\",\"strokeWidth\":2}");
+            element.setRevision(1);
+            element.setCreatedAt(Instant.now());
+            element.setUpdatedAt(Instant.now());
+            entities.add(element);
+        }
+        dtos = entities.stream().map(mapper::toDto).toList();
+        properties = Map.of(
+                "stroke", "#1e1e1e",
+                "strokeWidth", 3,
+                "points", List.of(0, 0, 4.5, 2.25, 9, 6.75, 13.5, 11.25));
+    }
+
+    @Benchmark
+    public List<BoardElementDto> toDto() {
+        List<BoardElementDto> result = new ArrayList<>(entities.size());
+        for (BoardElement entity : entities) {
+            result.add(mapper.toDto(entity));
+        }
+        return result;
+    }
+
+    /**
+     * Сериализация свойств на запись (toJsonSafe в сервисе) — по разу на каждый элемент доски.
+     */
+    @Benchmark
+    public int propertiesToJson() throws JsonProcessingException {
+        int length = 0;
+        for (int i = 0; i < elements; i++) {
+            length += objectMapper.writeValueAsString(properties).length();
+        }
+        return length;
+    }
+
+    /**
+     * Тело ответа GET /api/boards/{uuid}/elements.
+     */
+    @Benchmark
+    public byte[] serializeBoard() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    /**
+     * То же тело в CBOR (Accept: application/cbor).
+     */
+    @Benchmark
+    public byte[] serializeBoardCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(dtos);
+    }
+
+    private static ObjectMapper cborMapper() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        new CborConfig(Jackson2ObjectMapperBuilder.json()).extendMessageConverters(converters);
+        return ((MappingJackson2CborHttpMessageConverter) converters.get(0)).getObjectMapper();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.CopyElementsRequest;
+import com.example.demo.dto.CopyElementsResponse;
+import com.example.demo.service.BoardElementCache;
+import com.example.demo.service.BoardElementService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути сервиса элементов на настоящем PostgreSQL.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoardElementServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoadState {
+
+        @Param({"1000", "10000", "100000"})
+        public int elements;
+
+        BenchmarkBoardEnvironment environment;
+        BoardElementService elementService;
+        BoardElementCache elementCache;
+        ObjectMapper objectMapper;
+        UUID boardUuid;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            environment = BenchmarkBoardEnvironment.start();
+            elementService = environment.bean(BoardElementService.class);
+            elementCache = environment.bean(BoardElementCache.class);
+            objectMapper = environment.bean(ObjectMapper.class);
+            boardUuid = environment.seedBoard(elements);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            environment.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CopyState {
+
+        @Param({"1", "50", "500", "5000"})
+        public int selection;
+
+        BenchmarkBoardEnvironment environment;
+        BoardElementService elementService;
+        TransactionTemplate transactionTemplate;
+        CopyElementsRequest request;
+        UUID boardUuid;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            environment = BenchmarkBoardEnvironment.start();
+            elementService = environment.bean(BoardElementService.class);
+            transactionTemplate = environment.bean(TransactionTemplate.class);
+            boardUuid = environment.seedBoard(10_000);
+
+            request = new CopyElementsRequest();
+            request.setElementIds(environment.elementIds(boardUuid, selection));
+            request.setOffsetX(20.0);
+            request.setOffsetY(20.0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            environment.close();
+        }
+    }
+
+    /**
+     * Холодная загрузка: кэш сброшен, элементы читаются из базы и сериализуются в тело ответа.
+     */
+    @Benchmark
+    public byte[] loadBoardCold(LoadState state) throws JsonProcessingException {
+        state.elementCache.evict(state.boardUuid);
+        List<BoardElementDto> elements = state.elementService.getElementsByBoardUuid(state.boardUuid);
+        return state.objectMapper.writeValueAsBytes(elements);
+    }
+
+    /**
+     * Потоковая NDJSON-выдача с курсором по базе (кэш сброшен).
+     */
+    @Benchmark
+    public void streamBoardCold(LoadState state) throws IOException {
+        state.elementCache.evict(state.boardUuid);
+        state.elementService.streamElements(state.boardUuid).writeTo(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Повторная загрузка из кэша активных досок.
+     */
+    @Benchmark
+    public byte[] loadBoardCached(LoadState state) throws JsonProcessingException {
+        List<BoardElementDto> elements = state.elementService.getElementsByBoardUuid(state.boardUuid);
+        return state.objectMapper.writeValueAsBytes(elements);
+    }
+
+    /**
+     * Копирование выделения; транзакция откатывается, чтобы доска не росла между итерациями.
+     */
+    @Benchmark
+    public CopyElementsResponse copyElements(CopyState state) {
+        return state.transactionTemplate.execute(status -> {
+            CopyElementsResponse response = state.elementService.copyElements(state.boardUuid, state.request);
+            status.setRollbackOnly();
+            return response;
+        });
+    }
+}
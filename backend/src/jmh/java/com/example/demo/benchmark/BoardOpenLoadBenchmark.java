@@ -0,0 +1,125 @@
+package com.example.demo.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест всплеска открытий досок: concurrency одновременных GET .../elements по HTTP
+ * с выключенным кэшем, чтобы каждый запрос шёл в базу. Сравниваются пул Tomcat на платформенных
+ * потоках и виртуальные потоки с ограничителем ConnectionPoolLimiterFilter.
+ * Одна операция — одна волна запросов, результат — время её обработки целиком;
+ * ok, rejected и failed — число ответов 200, 503 и прочих. acquireTimeoutMs задаёт ожидание
+ * в ограничителе: при коротком он сбрасывает лишнее 503, при длинном ставит запросы в очередь.
+ * gradle jmhRun -Pjmh.includes=BoardOpenLoadBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoardOpenLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"platform", "virtual"})
+        public String threads;
+
+        @Param({"200", "1000"})
+        public int concurrency;
+
+        @Param({"200", "2000"})
+        public int elements;
+
+        @Param({"1000", "30000"})
+        public long acquireTimeoutMs;
+
+        BenchmarkBoardEnvironment environment;
+        HttpClient client;
+        ExecutorService clientThreads;
+        HttpRequest request;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            environment = BenchmarkBoardEnvironment.start(
+                    "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                    "--board.cache.max-boards=0",
+                    "--board.db-limiter.acquire-timeout-ms=" + acquireTimeoutMs);
+            UUID boardUuid = environment.seedBoard(elements);
+            clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientThreads)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            request = HttpRequest.newBuilder(URI.create(
+                            "http://localhost:" + environment.port() + "/api/boards/" + boardUuid + "/elements"))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            clientThreads.shutdownNow();
+            environment.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long ok;
+        public long rejected;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ok = 0;
+            rejected = 0;
+            failed = 0;
+        }
+    }
+
+    @Benchmark
+    public void openBoardBurst(ServerState state, Responses responses) {
+        List<CompletableFuture<HttpResponse<Void>>> burst = new ArrayList<>(state.concurrency);
+        for (int i = 0; i < state.concurrency; i++) {
+            burst.add(state.client.sendAsync(state.request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> future : burst) {
+            try {
+                int status = future.join().statusCode();
+                if (status == 200) {
+                    responses.ok++;
+                } else if (status == 503) {
+                    responses.rejected++;
+                } else {
+                    responses.failed++;
+                }
+            } catch (RuntimeException e) {
+                responses.failed++;
+            }
+        }
+    }
+}
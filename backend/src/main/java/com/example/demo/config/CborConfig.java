@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.mapper.CborPropertiesSerializer;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Компактный бинарный формат ответов: Accept: application/cbor.
+ * JSON остаётся форматом по умолчанию — CBOR-конвертер добавляется в конец списка.
+ */
+@Configuration
+public class CborConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public CborConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // те же модули и настройки, что у JSON-маппера приложения
+        ObjectMapper cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        cborMapper.addMixIn(BoardElementDto.class, CborElementMixin.class);
+        cborMapper.registerModule(new SimpleModule("compact-doubles")
+                .addSerializer(Double.class, new CompactDoubleSerializer())
+                .addSerializer(double.class, new CompactDoubleSerializer()));
+        MappingJackson2CborHttpMessageConverter converter = new MappingJackson2CborHttpMessageConverter(cborMapper);
+
+        // Spring сам добавляет CBOR-конвертер, когда библиотека на classpath, — заменяем его своим
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, converter);
+                return;
+            }
+        }
+        converters.add(converter);
+    }
+
+    abstract static class CborElementMixin {
+        @JsonRawValue(false)
+        @JsonSerialize(using = CborPropertiesSerializer.class)
+        private String properties;
+    }
+
+    /**
+     * Геометрия: float32 вместо float64, если значение представимо без потерь.
+     */
+    static class CompactDoubleSerializer extends JsonSerializer<Double> {
+        @Override
+        public void serialize(Double value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            CborPropertiesSerializer.writeCompactDouble(gen, value);
+        }
+    }
+}
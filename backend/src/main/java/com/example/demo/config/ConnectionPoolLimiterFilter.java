@@ -0,0 +1,154 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничитель одновременных запросов к /api при работе на виртуальных потоках.
+ * <p>
+ * Пул Tomcat на платформенных потоках сам ограничивал число запросов, идущих в базу.
+ * Виртуальных потоков можно создать сколько угодно, и при всплеске открытий досок тысячи запросов
+ * встают в очередь Hikari и ждут там до connectionTimeout. Семафор держит число запросов в работе
+ * кратным размеру пула соединений. Лишние запросы ждут недолго, а потом получают 503 с Retry-After.
+ * Потоковый ответ (NDJSON) читает базу уже после выхода из фильтра, поэтому его разрешение
+ * отпускается по завершении асинхронной обработки. Лента SSE ходит в базу только при подключении
+ * и держит соединение полчаса — её разрешение отпускается при выходе из фильтра.
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConnectionPoolLimiterFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final Counter rejected;
+
+    public ConnectionPoolLimiterFilter(DataSource dataSource,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${board.db-limiter.permits:0}") int permits,
+                                       @Value("${board.db-limiter.permits-per-connection:2}") int permitsPerConnection,
+                                       @Value("${board.db-limiter.acquire-timeout-ms:1000}") long acquireTimeoutMs) {
+        int size = permits > 0 ? permits : poolSize(dataSource) * permitsPerConnection;
+        this.permits = new Semaphore(size, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        log.info("Limiting concurrent API requests to {}", size);
+
+        Gauge.builder("board.db-limiter.waiting", this.permits, Semaphore::getQueueLength)
+                .description("Запросы, ждущие разрешения ограничителя")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("board.db-limiter.rejected")
+                .description("Запросы, отклонённые ограничителем с 503")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Размер пула Hikari; DataSource обёрнут datasource-proxy, поэтому через unwrap.
+     */
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to read connection pool size: {}", e.getMessage());
+        }
+        // значение Hikari по умолчанию
+        return 10;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy");
+            return;
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                permits.release();
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted() && !isEventStream(request)) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+                return;
+            }
+        } catch (ServletException | IOException | RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        release.run();
+    }
+
+    /**
+     * Обработчик объявлен как produces = text/event-stream.
+     */
+    private static boolean isEventStream(HttpServletRequest request) {
+        Object producible = request.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+        return producible instanceof Collection<?> mediaTypes
+                && mediaTypes.stream().anyMatch(MediaType.TEXT_EVENT_STREAM::equals);
+    }
+}
@@ -4,19 +4,23 @@ import com.example.demo.dto.BoardDto;
 import com.example.demo.dto.CreateBoardRequest;
 import com.example.demo.dto.UpdateBoardRequest;
 import com.example.demo.service.BoardService;
+import com.example.demo.service.BoardViewerHub;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.UUID;
@@ -27,6 +31,7 @@ import java.util.UUID;
 public class BoardController {
 
     private final BoardService boardService;
+    private final BoardViewerHub viewerHub;
 
 //    @GetMapping
 //    public List<BoardDto> getMyBoards() {
@@ -65,4 +70,14 @@ public class BoardController {
         // просто проксируем к BoardService.getBoard
         return boardService.getBoard(boardUuid);
     }
+
+    /**
+     * SSE-лента дельт элементов для зрителей: события elements и resync (см. BoardViewerHub).
+     */
+    @GetMapping(value = "/public/{boardUuid}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBoardEvents(@PathVariable UUID boardUuid,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        boardService.getBoard(boardUuid);
+        return viewerHub.connect(boardUuid, lastEventId);
+    }
 }
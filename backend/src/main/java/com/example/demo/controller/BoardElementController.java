@@ -1,21 +1,35 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.BoardChangesDto;
+import com.example.demo.dto.BoardCoordinate;
 import com.example.demo.dto.BoardElementCreateRequest;
 import com.example.demo.dto.BoardElementDto;
 import com.example.demo.dto.BoardElementUpdateRequest;
 import com.example.demo.dto.CopyElementsRequest;
 import com.example.demo.dto.CopyElementsResponse;
+import com.example.demo.dto.ElementBatchRequest;
 import com.example.demo.dto.ElementLockRequest;
+import com.example.demo.dto.ElementMoveRequest;
 import com.example.demo.dto.ElementTransformRequest;
 import com.example.demo.dto.GroupElementsRequest;
 import com.example.demo.dto.GroupElementsResponse;
 import com.example.demo.dto.ReorderElementsRequest;
 import com.example.demo.dto.UngroupElementsRequest;
+import com.example.demo.exception.ConflictException;
+import com.example.demo.service.BoardCrdtReplicas;
 import com.example.demo.service.BoardElementService;
+import com.example.demo.service.ElementTransformStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -23,10 +37,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -34,11 +52,58 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class BoardElementController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final BoardElementService boardElementService;
+    private final ElementTransformStream transformStream;
+    private final ObjectProvider<BoardCrdtReplicas> crdtReplicas;
 
     @GetMapping
-    public List<BoardElementDto> getElements(@PathVariable UUID boardUuid) {
-        return boardElementService.getElementsByBoardUuid(boardUuid);
+    public List<BoardElementDto> getElements(
+            @PathVariable UUID boardUuid,
+            @RequestParam(required = false) Double minX,
+            @RequestParam(required = false) Double minY,
+            @RequestParam(required = false) Double maxX,
+            @RequestParam(required = false) Double maxY,
+            @RequestParam(required = false) Double scale
+    ) {
+        if (minX == null && minY == null && maxX == null && maxY == null) {
+            BoardCrdtReplicas replicas = crdtReplicas.getIfAvailable();
+            return replicas != null
+                    ? replicas.elements(boardUuid)
+                    : boardElementService.getElementsByBoardUuid(boardUuid);
+        }
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new ValidationException("Viewport requires minX, minY, maxX and maxY");
+        }
+        for (double bound : new double[]{minX, minY, maxX, maxY}) {
+            // NaN не проходит сравнение
+            if (!(Math.abs(bound) <= BoardCoordinate.LIMIT)) {
+                throw new ValidationException("Viewport bounds must be finite numbers within ±1e9");
+            }
+        }
+        if (scale != null && !(scale > 0)) {
+            throw new ValidationException("Scale must be positive");
+        }
+        return boardElementService.getElementsInViewport(boardUuid, minX, minY, maxX, maxY, scale);
+    }
+
+    /**
+     * Потоковая выдача для очень больших досок: Accept: application/x-ndjson.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamElements(@PathVariable UUID boardUuid) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(boardElementService.streamElements(boardUuid));
+    }
+
+    @GetMapping("/changes")
+    public BoardChangesDto getChanges(
+            @PathVariable UUID boardUuid,
+            @RequestParam(defaultValue = "0") long since
+    ) {
+        return boardElementService.getChangesSince(boardUuid, since);
     }
 
     @PostMapping
@@ -67,6 +132,25 @@ public class BoardElementController {
         return boardElementService.transformElement(boardUuid, elementId, request);
     }
 
+    @PatchMapping("/{elementId}/transform/stream")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void streamTransform(
+            @PathVariable UUID boardUuid,
+            @PathVariable Long elementId,
+            @RequestBody @Valid ElementTransformRequest request
+    ) {
+        transformStream.acceptFrame(boardUuid, elementId, request);
+    }
+
+    @PostMapping("/{elementId}/transform/end")
+    public BoardElementDto endTransform(
+            @PathVariable UUID boardUuid,
+            @PathVariable Long elementId,
+            @RequestBody(required = false) @Valid ElementTransformRequest request
+    ) {
+        return transformStream.endGesture(boardUuid, elementId, request);
+    }
+
     @DeleteMapping("/{elementId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteElement(
@@ -76,6 +160,14 @@ public class BoardElementController {
         boardElementService.deleteElement(boardUuid, elementId);
     }
 
+    @PostMapping("/batch")
+    public BoardChangesDto applyBatch(
+            @PathVariable UUID boardUuid,
+            @RequestBody @Valid ElementBatchRequest request
+    ) {
+        return boardElementService.applyBatch(boardUuid, request);
+    }
+
     @PostMapping("/group")
     public GroupElementsResponse groupElements(
             @PathVariable UUID boardUuid,
@@ -100,6 +192,15 @@ public class BoardElementController {
         boardElementService.reorderElements(boardUuid, request);
     }
 
+    @PatchMapping("/{elementId}/order")
+    public BoardElementDto moveElement(
+            @PathVariable UUID boardUuid,
+            @PathVariable Long elementId,
+            @RequestBody @Valid ElementMoveRequest request
+    ) {
+        return boardElementService.moveElement(boardUuid, elementId, request);
+    }
+
     @PatchMapping("/{elementId}/lock")
     public BoardElementDto lockElement(
             @PathVariable UUID boardUuid,
@@ -116,4 +217,30 @@ public class BoardElementController {
     ) {
         return boardElementService.copyElements(boardUuid, request);
     }
+
+    /**
+     * Правка по устаревшей версии: в теле — актуальный элемент, клиент переигрывает правку поверх него.
+     */
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<BoardElementDto> handleConflict(ConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getCurrent());
+    }
+
+    /**
+     * Элемент изменился между чтением и записью мимо блокировки доски. Все пути правки читают элемент
+     * под блокировкой ревизии, так что это страховка; ответ тот же, что у ConflictException.
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<BoardElementDto> handleStaleElement(ObjectOptimisticLockingFailureException e,
+                                                              HttpServletRequest request) {
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(e.getIdentifier() instanceof Long elementId) || pathVariables == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return boardElementService.findElement(UUID.fromString(pathVariables.get("boardUuid")), elementId)
+                .map(current -> ResponseEntity.status(HttpStatus.CONFLICT).body(current))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
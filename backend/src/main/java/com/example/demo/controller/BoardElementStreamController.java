@@ -0,0 +1,41 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.ElementTransformRequest;
+import com.example.demo.service.ElementTransformStream;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+
+import java.util.UUID;
+
+/**
+ * Приём кадров перемещения по STOMP (/app/boards/{boardUuid}/elements/{elementId}/transform).
+ * Результат расходится подписчикам через /topic/boards/{boardUuid}/elements.
+ */
+@Controller
+@RequiredArgsConstructor
+public class BoardElementStreamController {
+
+    private final ElementTransformStream transformStream;
+
+    @MessageMapping("/boards/{boardUuid}/elements/{elementId}/transform")
+    public void transform(
+            @DestinationVariable UUID boardUuid,
+            @DestinationVariable Long elementId,
+            @Payload @Valid ElementTransformRequest request
+    ) {
+        transformStream.acceptFrame(boardUuid, elementId, request);
+    }
+
+    @MessageMapping("/boards/{boardUuid}/elements/{elementId}/transform/end")
+    public void endTransform(
+            @DestinationVariable UUID boardUuid,
+            @DestinationVariable Long elementId,
+            @Payload(required = false) ElementTransformRequest request
+    ) {
+        transformStream.endGesture(boardUuid, elementId, request);
+    }
+}
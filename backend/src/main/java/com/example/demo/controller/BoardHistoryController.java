@@ -0,0 +1,44 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.service.BoardHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/boards/{boardUuid}/history")
+@RequiredArgsConstructor
+public class BoardHistoryController {
+
+    private final BoardHistoryService boardHistoryService;
+
+    @GetMapping("/elements/{elementId}")
+    public BoardElementDto getElementStateAt(
+            @PathVariable UUID boardUuid,
+            @PathVariable Long elementId,
+            @RequestParam Long eventId
+    ) {
+        return boardHistoryService.getElementStateAt(boardUuid, elementId, eventId);
+    }
+
+    @GetMapping("/state")
+    public List<BoardElementDto> getBoardStateAt(
+            @PathVariable UUID boardUuid,
+            @RequestParam long revision
+    ) {
+        return boardHistoryService.getBoardStateAt(boardUuid, revision);
+    }
+
+    @PostMapping("/snapshots")
+    public long createSnapshot(@PathVariable UUID boardUuid) {
+        return boardHistoryService.createSnapshot(boardUuid);
+    }
+}
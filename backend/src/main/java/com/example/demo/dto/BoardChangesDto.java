@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Изменения доски после ревизии since: клиент применяет upserts,
+ * удаляет deletedIds и запоминает revision для следующего запроса.
+ */
+@Data
+public class BoardChangesDto {
+
+    private long revision;
+
+    private List<BoardElementDto> upserts;
+
+    private List<Long> deletedIds;
+}
@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+import jakarta.validation.ReportAsSingleViolation;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Координата или размер элемента: конечное число не больше 10^9 по модулю.
+ * NaN и бесконечности отвергаются теми же проверками. null допустим — его запрещает @NotNull.
+ */
+@DecimalMin("-1e9")
+@DecimalMax("1e9")
+@Constraint(validatedBy = {})
+@ReportAsSingleViolation
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BoardCoordinate {
+
+    /** Предел по модулю — для проверок вне Bean Validation. */
+    double LIMIT = 1e9;
+
+    String message() default "must be a finite number within ±1e9";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
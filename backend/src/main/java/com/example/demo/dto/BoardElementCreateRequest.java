@@ -12,17 +12,22 @@ public class BoardElementCreateRequest {
     private ElementType type;
 
     @NotNull
+    @BoardCoordinate
     private Double x;
 
     @NotNull
+    @BoardCoordinate
     private Double y;
 
     @NotNull
+    @BoardCoordinate
     private Double width;
 
     @NotNull
+    @BoardCoordinate
     private Double height;
 
+    @BoardCoordinate
     private Double rotation;
 
     private Integer zIndex;
@@ -1,7 +1,10 @@
 package com.example.demo.dto;
 
+import com.example.demo.mapper.RawJsonDeserializer;
 import com.example.demo.model.BoardElement.ElementType;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 
 @Data
@@ -19,6 +22,8 @@ public class BoardElementDto {
 
     private int zIndex;
 
+    private String orderKey;
+
     private String groupId;
 
     private boolean lockedPosition;
@@ -26,5 +31,23 @@ public class BoardElementDto {
 
     private Long mediaId;
 
-    private JsonNode properties;
+    private long revision;
+
+    /**
+     * Версия элемента; передаётся обратно в baseVersion при правке.
+     */
+    private long version;
+
+    /**
+     * JSON свойств в том виде, в каком он лежит в БД; пишется в ответ без разбора.
+     */
+    @JsonRawValue
+    @JsonDeserialize(using = RawJsonDeserializer.class)
+    private String properties;
+
+    /**
+     * Уровни детализации точек (см. PointsCodec); наружу не отдаются, нужны для выборки по viewport.
+     */
+    @JsonIgnore
+    private byte[] pointsLod;
 }
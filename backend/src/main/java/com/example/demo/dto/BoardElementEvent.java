@@ -0,0 +1,69 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.BoardHistoryEvent.EventType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Дельта изменений элементов доски, рассылаемая подписчикам доски.
+ * upserts — актуальное состояние созданных/изменённых элементов,
+ * deletedIds — идентификаторы удалённых элементов.
+ */
+@Data
+public class BoardElementEvent {
+
+    private UUID boardUuid;
+
+    private EventType type;
+
+    /**
+     * Ревизия доски после изменения; null для кадров потокового перемещения, ещё не записанных в БД.
+     */
+    private Long revision;
+
+    private List<BoardElementDto> upserts = List.of();
+
+    private List<Long> deletedIds = List.of();
+
+    private Instant createdAt = Instant.now();
+
+    /**
+     * Событие пришло с другого узла через BoardEventBus; обратно в шину не отправляется.
+     */
+    @JsonIgnore
+    private boolean remote;
+
+    public static BoardElementEvent upserted(UUID boardUuid, EventType type, Long revision,
+                                             List<BoardElementDto> upserts) {
+        BoardElementEvent event = new BoardElementEvent();
+        event.setBoardUuid(boardUuid);
+        event.setType(type);
+        event.setRevision(revision);
+        event.setUpserts(upserts);
+        return event;
+    }
+
+    public static BoardElementEvent batch(UUID boardUuid, Long revision,
+                                          List<BoardElementDto> upserts, List<Long> deletedIds) {
+        BoardElementEvent event = new BoardElementEvent();
+        event.setBoardUuid(boardUuid);
+        event.setType(EventType.ELEMENT_BATCH);
+        event.setRevision(revision);
+        event.setUpserts(upserts);
+        event.setDeletedIds(deletedIds);
+        return event;
+    }
+
+    public static BoardElementEvent deleted(UUID boardUuid, Long revision, List<Long> deletedIds) {
+        BoardElementEvent event = new BoardElementEvent();
+        event.setBoardUuid(boardUuid);
+        event.setType(EventType.ELEMENT_DELETED);
+        event.setRevision(revision);
+        event.setDeletedIds(deletedIds);
+        return event;
+    }
+}
@@ -10,10 +10,19 @@ import lombok.Data;
 @Data
 public class BoardElementUpdateRequest {
 
+    @BoardCoordinate
     private Double x;
+
+    @BoardCoordinate
     private Double y;
+
+    @BoardCoordinate
     private Double width;
+
+    @BoardCoordinate
     private Double height;
+
+    @BoardCoordinate
     private Double rotation;
 
     private Integer zIndex;
@@ -26,4 +35,9 @@ public class BoardElementUpdateRequest {
     private Long mediaId;
 
     private JsonNode properties;
+
+    /**
+     * Версия элемента, от которой клиент делал правку. null — без проверки (последняя запись побеждает).
+     */
+    private Long baseVersion;
 }
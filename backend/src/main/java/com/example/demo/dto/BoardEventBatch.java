@@ -0,0 +1,36 @@
+package com.example.demo.dto;
+
+import com.example.demo.service.BoardElementCrdt.Operation;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Пачка событий одной доски, которую узел отправляет остальным через BoardEventBus.
+ * revision — последняя ревизия доски в пачке, fromRevision — ревизия предыдущей пачки этого узла по доске
+ * (или ревизия перед первым изменением пачки): если получатель видел от узла меньшую, часть пачек потерялась.
+ * Если пачка не поместилась в сообщение, events пуст и truncated = true: получатель сам
+ * дочитывает изменения после fromRevision из БД.
+ */
+@Data
+public class BoardEventBatch {
+
+    /** Узел-отправитель; свои пачки узел пропускает. */
+    private String origin;
+
+    private UUID boardUuid;
+
+    private Long fromRevision;
+
+    private Long revision;
+
+    private List<BoardElementEvent> events = List.of();
+
+    /** CRDT-операции событий пачки; пусто, если CRDT-реплики выключены. */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<Operation> operations = List.of();
+
+    private boolean truncated;
+}
@@ -17,8 +17,10 @@ public class CopyElementsRequest {
     private List<Long> elementIds;
 
     @NotNull
+    @BoardCoordinate
     private Double offsetX;
 
     @NotNull
+    @BoardCoordinate
     private Double offsetY;
 }
@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Одна операция пакетного изменения. Заполняется поле, соответствующее типу:
+ * CREATE — create, UPDATE — elementId + update, TRANSFORM — elementId + transform, DELETE — elementId.
+ */
+@Data
+public class ElementBatchOperation {
+
+    public enum Type {
+        CREATE, UPDATE, TRANSFORM, DELETE
+    }
+
+    @NotNull
+    private Type type;
+
+    private Long elementId;
+
+    @Valid
+    private BoardElementCreateRequest create;
+
+    @Valid
+    private BoardElementUpdateRequest update;
+
+    @Valid
+    private ElementTransformRequest transform;
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ElementBatchRequest {
+
+    @NotEmpty
+    @Valid
+    private List<ElementBatchOperation> operations;
+}
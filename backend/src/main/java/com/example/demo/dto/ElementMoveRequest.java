@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ElementMoveRequest {
+
+    public enum Position {
+        FRONT,  // поверх всех
+        BACK,   // под всеми
+        ABOVE,  // сразу над targetId
+        BELOW   // сразу под targetId
+    }
+
+    @NotNull
+    private Position position;
+
+    // обязателен для ABOVE / BELOW
+    private Long targetId;
+}
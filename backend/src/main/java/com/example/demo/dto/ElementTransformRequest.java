@@ -7,17 +7,27 @@ import lombok.Data;
 public class ElementTransformRequest {
 
     @NotNull
+    @BoardCoordinate
     private Double x;
 
     @NotNull
+    @BoardCoordinate
     private Double y;
 
     @NotNull
+    @BoardCoordinate
     private Double width;
 
     @NotNull
+    @BoardCoordinate
     private Double height;
 
     @NotNull
+    @BoardCoordinate
     private Double rotation;
+
+    /**
+     * Версия элемента, от которой клиент делал правку. null — без проверки (последняя запись побеждает).
+     */
+    private Long baseVersion;
 }
@@ -0,0 +1,19 @@
+package com.example.demo.exception;
+
+import com.example.demo.dto.BoardElementDto;
+import lombok.Getter;
+
+/**
+ * Правка сделана по устаревшей версии элемента и задевает поля, изменённые с тех пор.
+ * current — актуальное состояние элемента, чтобы клиент мог переиграть правку без лишнего запроса.
+ */
+@Getter
+public class ConflictException extends RuntimeException {
+
+    private final BoardElementDto current;
+
+    public ConflictException(String message, BoardElementDto current) {
+        super(message);
+        this.current = current;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.model.BoardElement;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Строка {@link #SELECT_BY_BOARD} -> DTO без сущности и контекста персистентности.
+ */
+@Component
+public class BoardElementRowMapper implements RowMapper<BoardElementDto> {
+
+    public static final String SELECT_BY_BOARD = """
+            SELECT e.id, e.type, e.x, e.y, e.width, e.height, e.rotation, e.z_index, e.order_key,
+                   g.uuid AS group_uuid, e.locked_position, e.locked_editing, e.media_id, e.revision, e.version,
+                   e.properties_json::text AS properties_json, e.points_data, e.points_lod
+            FROM board_elements e
+            LEFT JOIN element_groups g ON g.id = e.group_id
+            WHERE e.board_id = ?
+            ORDER BY e.order_key
+            """;
+
+    @Override
+    public BoardElementDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(rs.getLong("id"));
+        dto.setType(BoardElement.ElementType.valueOf(rs.getString("type")));
+        dto.setX(rs.getDouble("x"));
+        dto.setY(rs.getDouble("y"));
+        dto.setWidth(rs.getDouble("width"));
+        dto.setHeight(rs.getDouble("height"));
+        dto.setRotation(rs.getDouble("rotation"));
+        dto.setZIndex(rs.getInt("z_index"));
+        dto.setOrderKey(rs.getString("order_key"));
+        dto.setGroupId(rs.getString("group_uuid"));
+        dto.setLockedPosition(rs.getBoolean("locked_position"));
+        dto.setLockedEditing(rs.getBoolean("locked_editing"));
+        long mediaId = rs.getLong("media_id");
+        dto.setMediaId(rs.wasNull() ? null : mediaId);
+        dto.setRevision(rs.getLong("revision"));
+        dto.setVersion(rs.getLong("version"));
+
+        String json = rs.getString("properties_json");
+        json = json != null && !json.isEmpty() ? json : "{}";
+        byte[] points = rs.getBytes("points_data");
+        if (points != null) {
+            json = PointsCodec.spliceInto(json, points);
+        }
+        dto.setProperties(json);
+        dto.setPointsLod(rs.getBytes("points_lod"));
+        return dto;
+    }
+}
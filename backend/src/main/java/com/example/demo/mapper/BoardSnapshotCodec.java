@@ -0,0 +1,69 @@
+package com.example.demo.mapper;
+
+import com.example.demo.dto.BoardElementDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кодирование снимка доски: gzip(JSON-массив BoardElementDto).
+ * properties хранятся строкой, а не вложенным JSON — при чтении снимка их не нужно разбирать.
+ */
+@Component
+public class BoardSnapshotCodec {
+
+    private static final TypeReference<List<BoardElementDto>> ELEMENTS = new TypeReference<>() {
+    };
+
+    private final ObjectMapper snapshotMapper;
+
+    public BoardSnapshotCodec(ObjectMapper objectMapper) {
+        this.snapshotMapper = objectMapper.copy().addMixIn(BoardElementDto.class, PlainPropertiesMixin.class);
+    }
+
+    abstract static class PlainPropertiesMixin {
+        @JsonRawValue(false)
+        @JsonDeserialize(using = JsonDeserializer.None.class)
+        private String properties;
+
+        // Lombok копирует @JsonDeserialize на сеттер DTO — переопределяем и там
+        @JsonDeserialize(using = JsonDeserializer.None.class)
+        abstract void setProperties(String properties);
+
+        // уровни детализации сохраняем в снимке, иначе после холодной загрузки их не будет
+        @JsonProperty
+        @JsonIgnore(false)
+        private byte[] pointsLod;
+    }
+
+    public byte[] encode(List<BoardElementDto> elements) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            snapshotMapper.writeValue(gzip, elements);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public List<BoardElementDto> decode(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return snapshotMapper.readValue(gzip, ELEMENTS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
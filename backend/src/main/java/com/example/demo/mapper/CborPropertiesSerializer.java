@@ -0,0 +1,185 @@
+package com.example.demo.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Пишет JSON свойств элемента (сырую строку из БД) в CBOR как вложенную структуру.
+ * Числовые массивы (points и т.п.) упаковываются в типизированные массивы RFC 8746:
+ * float32 или int32, если все значения представимы без потерь, иначе float64.
+ * Отдельные дробные числа — float32, когда это не теряет точности.
+ * JSON читается потоково, без дерева: в памяти копится только числовой массив, пока не ясно,
+ * станет ли он типизированным.
+ */
+public class CborPropertiesSerializer extends JsonSerializer<String> {
+
+    // RFC 8746, little-endian: так их читают Float32Array / Float64Array / Int32Array в браузере
+    private static final int TAG_SINT32_LE = 78;
+    private static final int TAG_FLOAT32_LE = 85;
+    private static final int TAG_FLOAT64_LE = 86;
+
+    // короче упаковывать невыгодно: тег и заголовок строки съедают выигрыш
+    private static final int MIN_PACKED_LENGTH = 4;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Override
+    public void serialize(String json, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != null) {
+                writeValue(parser, gen);
+            }
+        }
+    }
+
+    /**
+     * Переносит текущее значение парсера в генератор, не строя дерево.
+     */
+    private static void writeValue(JsonParser parser, JsonGenerator gen) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT -> {
+                gen.writeStartObject();
+                while (parser.nextToken() != JsonToken.END_OBJECT) {
+                    gen.writeFieldName(parser.currentName());
+                    parser.nextToken();
+                    writeValue(parser, gen);
+                }
+                gen.writeEndObject();
+            }
+            case START_ARRAY -> writeArray(parser, gen);
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> writeCompactNumber(parser, gen);
+            default -> gen.copyCurrentEvent(parser);
+        }
+    }
+
+    /**
+     * Числа в начале массива копятся в буфер: если до конца массива встретились только они,
+     * массив уходит типизированным, иначе буфер выписывается обычными элементами.
+     */
+    private static void writeArray(JsonParser parser, JsonGenerator gen) throws IOException {
+        JsonToken token = parser.nextToken();
+        NumberRun run = null;
+        if (gen instanceof CBORGenerator) {
+            run = new NumberRun();
+            while (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                run.add(parser);
+                token = parser.nextToken();
+            }
+            if (token == JsonToken.END_ARRAY && run.size >= MIN_PACKED_LENGTH) {
+                run.writePacked((CBORGenerator) gen);
+                return;
+            }
+        }
+        gen.writeStartArray();
+        if (run != null) {
+            run.writeEach(gen);
+        }
+        while (token != JsonToken.END_ARRAY) {
+            writeValue(parser, gen);
+            token = parser.nextToken();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeCompactNumber(JsonParser parser, JsonGenerator gen) throws IOException {
+        if (isLong(parser)) {
+            gen.writeNumber(parser.getLongValue());
+        } else {
+            writeCompactDouble(gen, parser.getDoubleValue());
+        }
+    }
+
+    private static boolean isLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+            return false;
+        }
+        JsonParser.NumberType type = parser.getNumberType();
+        return type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG;
+    }
+
+    public static void writeCompactDouble(JsonGenerator gen, double value) throws IOException {
+        float asFloat = (float) value;
+        if (asFloat == value) {
+            gen.writeNumber(asFloat);
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    /**
+     * Подряд идущие числа массива. Целые, влезающие в long, хранятся точно — для обычной записи.
+     */
+    private static final class NumberRun {
+        private double[] doubles = new double[16];
+        private long[] longs = new long[16];
+        private boolean[] integral = new boolean[16];
+        private int size;
+        private boolean ints = true;
+        private boolean floats = true;
+
+        private void add(JsonParser parser) throws IOException {
+            if (size == doubles.length) {
+                doubles = Arrays.copyOf(doubles, size * 2);
+                longs = Arrays.copyOf(longs, size * 2);
+                integral = Arrays.copyOf(integral, size * 2);
+            }
+            boolean isLong = isLong(parser);
+            double value;
+            if (isLong) {
+                longs[size] = parser.getLongValue();
+                value = longs[size];
+            } else {
+                value = parser.getDoubleValue();
+            }
+            doubles[size] = value;
+            integral[size] = isLong;
+            ints &= isLong && parser.getNumberType() == JsonParser.NumberType.INT;
+            floats &= (float) value == value;
+            size++;
+        }
+
+        private void writeEach(JsonGenerator gen) throws IOException {
+            for (int i = 0; i < size; i++) {
+                if (integral[i]) {
+                    gen.writeNumber(longs[i]);
+                } else {
+                    writeCompactDouble(gen, doubles[i]);
+                }
+            }
+        }
+
+        private void writePacked(CBORGenerator gen) throws IOException {
+            ByteBuffer buffer;
+            if (ints) {
+                buffer = ByteBuffer.allocate(size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < size; i++) {
+                    buffer.putInt((int) longs[i]);
+                }
+                gen.writeTag(TAG_SINT32_LE);
+            } else if (floats) {
+                buffer = ByteBuffer.allocate(size * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < size; i++) {
+                    buffer.putFloat((float) doubles[i]);
+                }
+                gen.writeTag(TAG_FLOAT32_LE);
+            } else {
+                buffer = ByteBuffer.allocate(size * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < size; i++) {
+                    buffer.putDouble(doubles[i]);
+                }
+                gen.writeTag(TAG_FLOAT64_LE);
+            }
+            gen.writeBinary(buffer.array());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JSON Merge Patch (RFC 7386): вычисление, применение и склейка патчей.
+ * null в патче означает удаление поля, объекты сливаются рекурсивно,
+ * всё остальное (включая массивы) заменяется целиком.
+ */
+public final class JsonMergePatch {
+
+    private JsonMergePatch() {
+    }
+
+    /**
+     * Патч, переводящий source в target. Для равных объектов — пустой объект.
+     */
+    public static JsonNode diff(JsonNode source, JsonNode target) {
+        if (target == null || target.isNull()) {
+            return NullNode.getInstance();
+        }
+        if (source == null || !source.isObject() || !target.isObject()) {
+            return target.deepCopy();
+        }
+
+        ObjectNode patch = JsonNodeFactory.instance.objectNode();
+
+        Iterator<String> sourceFields = source.fieldNames();
+        while (sourceFields.hasNext()) {
+            String field = sourceFields.next();
+            if (!target.has(field) || target.get(field).isNull()) {
+                if (!source.get(field).isNull()) {
+                    patch.putNull(field);
+                }
+            }
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> targetFields = target.fields();
+        while (targetFields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = targetFields.next();
+            JsonNode sourceValue = source.get(entry.getKey());
+            JsonNode targetValue = entry.getValue();
+            if (targetValue.isNull() || targetValue.equals(sourceValue)) {
+                continue;
+            }
+            if (sourceValue != null && sourceValue.isObject() && targetValue.isObject()) {
+                patch.set(entry.getKey(), diff(sourceValue, targetValue));
+            } else {
+                patch.set(entry.getKey(), targetValue.deepCopy());
+            }
+        }
+        return patch;
+    }
+
+    /**
+     * Применяет патч к target (target не изменяется). null/отсутствующий target — пустой документ.
+     */
+    public static JsonNode apply(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            return patch == null ? target : patch.deepCopy();
+        }
+
+        ObjectNode result = (target != null && target.isObject())
+                ? ((ObjectNode) target).deepCopy()
+                : JsonNodeFactory.instance.objectNode();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            if (entry.getValue().isNull()) {
+                result.remove(entry.getKey());
+            } else {
+                result.set(entry.getKey(), apply(result.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Склеивает два последовательных патча в один: apply(apply(x, first), second) == apply(x, compose(first, second)),
+     * если {@link #canCompose} — иначе равенство верно не для всех x.
+     */
+    public static JsonNode compose(JsonNode first, JsonNode second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (!second.isObject()) {
+            return second.deepCopy();
+        }
+        if (!first.isObject()) {
+            // first заменил значение целиком — дальше это обычный документ
+            return apply(first.isNull() ? null : first, second);
+        }
+
+        ObjectNode result = ((ObjectNode) first).deepCopy();
+        Iterator<Map.Entry<String, JsonNode>> fields = second.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            if (entry.getValue().isNull()) {
+                result.putNull(entry.getKey());
+            } else {
+                result.set(entry.getKey(), compose(first.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Точна ли склейка патчей. Merge patch не умеет «заменить объект целиком»: если first удаляет поле
+     * или ставит в него не объект, а second потом патчит это поле объектом, склеенный патч
+     * слил бы объект second с исходным значением поля вместо замены.
+     */
+    public static boolean canCompose(JsonNode first, JsonNode second) {
+        if (first == null || second == null || !second.isObject()) {
+            return true;
+        }
+        if (!first.isObject()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = second.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            if (entry.getValue().isObject() && !canCompose(first.get(entry.getKey()), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.mapper;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Упаковка массивов точек (x0, y0, x1, y1, ...) кистей и стрелок.
+ * Координаты квантуются с шагом 1/quantization, затем хранятся разностями
+ * от предыдущей точки в zigzag-varint: соседние точки штриха близки, и большинство
+ * разностей укладывается в один-два байта вместо ~8 символов JSON.
+ * <p>
+ * Формат: varint quantization, varint количество чисел, далее разности.
+ * Уровни детализации: varint количество уровней, для каждого —
+ * varint допуск (в шагах квантования этого уровня), varint длина, упакованные точки.
+ */
+public final class PointsCodec {
+
+    private static final String POINTS_FIELD = "\"points\":[";
+
+    private PointsCodec() {
+    }
+
+    public static byte[] encode(double[] coords, int quantization) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(coords.length * 2 + 8);
+        writeVarint(out, quantization);
+        writeVarint(out, coords.length);
+        long prevX = 0;
+        long prevY = 0;
+        for (int i = 0; i < coords.length; i++) {
+            long q = Math.round(coords[i] * quantization);
+            if (i % 2 == 0) {
+                writeVarint(out, zigzag(q - prevX));
+                prevX = q;
+            } else {
+                writeVarint(out, zigzag(q - prevY));
+                prevY = q;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static double[] decode(byte[] data) {
+        Reader in = new Reader(data, 0);
+        int quantization = (int) in.varint();
+        double[] coords = new double[(int) in.varint()];
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < coords.length; i++) {
+            if (i % 2 == 0) {
+                x += unzigzag(in.varint());
+                coords[i] = (double) x / quantization;
+            } else {
+                y += unzigzag(in.varint());
+                coords[i] = (double) y / quantization;
+            }
+        }
+        return coords;
+    }
+
+    /**
+     * Возвращает JSON свойств с полем points из упакованных данных.
+     * points всегда дописывается последним полем — на это опирается {@link #replacePoints}.
+     */
+    public static String spliceInto(String propertiesJson, byte[] data) {
+        String json = propertiesJson != null && !propertiesJson.isBlank() ? propertiesJson.trim() : "{}";
+        int end = json.lastIndexOf('}');
+        StringBuilder sb = new StringBuilder(json.length() + data.length * 4 + 16);
+        sb.append(json, 0, end);
+        if (json.substring(1, end).isBlank()) {
+            sb.setLength(1);
+        } else {
+            sb.append(',');
+        }
+        appendPoints(sb, data);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Подменяет points, ранее добавленные {@link #spliceInto}, другим набором точек (уровнем детализации).
+     */
+    public static String replacePoints(String propertiesJson, byte[] data) {
+        int start = propertiesJson.lastIndexOf(POINTS_FIELD);
+        if (start < 0) {
+            return propertiesJson;
+        }
+        StringBuilder sb = new StringBuilder(start + data.length * 4 + 16);
+        sb.append(propertiesJson, 0, start);
+        appendPoints(sb, data);
+        return sb.append('}').toString();
+    }
+
+    public static byte[] encodeLevels(long[] tolerances, byte[][] levels) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, levels.length);
+        for (int i = 0; i < levels.length; i++) {
+            writeVarint(out, tolerances[i]);
+            writeVarint(out, levels[i].length);
+            out.writeBytes(levels[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Самый грубый уровень, чей допуск не больше maxTolerance (в единицах доски); null — если такого нет.
+     */
+    public static byte[] selectLevel(byte[] lod, double maxTolerance) {
+        Reader in = new Reader(lod, 0);
+        int count = (int) in.varint();
+        int bestOffset = -1;
+        int bestLength = 0;
+        double bestTolerance = -1;
+        for (int i = 0; i < count; i++) {
+            long tolerance = in.varint();
+            int length = (int) in.varint();
+            int quantization = (int) new Reader(lod, in.position).varint();
+            double worldTolerance = (double) tolerance / quantization;
+            if (worldTolerance <= maxTolerance && worldTolerance > bestTolerance) {
+                bestTolerance = worldTolerance;
+                bestOffset = in.position;
+                bestLength = length;
+            }
+            in.position += length;
+        }
+        if (bestOffset < 0) {
+            return null;
+        }
+        byte[] level = new byte[bestLength];
+        System.arraycopy(lod, bestOffset, level, 0, bestLength);
+        return level;
+    }
+
+    private static void appendPoints(StringBuilder sb, byte[] data) {
+        Reader in = new Reader(data, 0);
+        int quantization = (int) in.varint();
+        int count = (int) in.varint();
+        int scale = decimalScale(quantization);
+
+        sb.append(POINTS_FIELD);
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            long q;
+            if (i % 2 == 0) {
+                x += unzigzag(in.varint());
+                q = x;
+            } else {
+                y += unzigzag(in.varint());
+                q = y;
+            }
+            appendNumber(sb, q, quantization, scale);
+        }
+        sb.append(']');
+    }
+
+    // q / quantization без Double.toString: для шага 10^k печатаем десятичную дробь напрямую
+    private static void appendNumber(StringBuilder sb, long q, int quantization, int scale) {
+        if (scale < 0) {
+            sb.append((double) q / quantization);
+            return;
+        }
+        if (q < 0) {
+            sb.append('-');
+            q = -q;
+        }
+        sb.append(q / quantization);
+        long fraction = q % quantization;
+        if (fraction == 0) {
+            return;
+        }
+        int digits = scale;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        sb.append('.');
+        String fractionText = Long.toString(fraction);
+        for (int i = fractionText.length(); i < digits; i++) {
+            sb.append('0');
+        }
+        sb.append(fractionText);
+    }
+
+    private static int decimalScale(int quantization) {
+        int scale = 0;
+        int q = quantization;
+        while (q > 1 && q % 10 == 0) {
+            q /= 10;
+            scale++;
+        }
+        return q == 1 ? scale : -1;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        long varint() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
@@ -39,4 +39,17 @@ public class Board {
 
     @Column(name = "expires_at")
     private Instant expiresAt;
+
+    /**
+     * Текущая ревизия доски. Меняется только через BoardRevisionRepository.
+     */
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long revision;
+
+    /**
+     * Ревизии раньше этой по истории не восстановить: события удалены по сроку хранения.
+     * Меняется только через BoardHistoryMaintenanceRepository.
+     */
+    @Column(name = "history_floor_revision", nullable = false, insertable = false, updatable = false)
+    private long historyFloorRevision;
 }
@@ -4,6 +4,8 @@ import com.example.demo.model.User;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 
@@ -22,8 +24,10 @@ public class BoardElement {
         MEDIA       // картинки, видео, pdf и т.п.
     }
 
+    // пул из 50 идентификаторов на одно обращение к sequence — без этого Hibernate не батчит INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "board_elements_seq")
+    @SequenceGenerator(name = "board_elements_seq", sequenceName = "board_elements_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -52,6 +56,10 @@ public class BoardElement {
     @Column(nullable = false)
     private int zIndex = 0;
 
+    // порядок отрисовки; zIndex оставлен для старых клиентов
+    @Column(name = "order_key", nullable = false, columnDefinition = "text collate \"C\"")
+    private String orderKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "group_id")
     private ElementGroup group;
@@ -75,10 +83,23 @@ public class BoardElement {
      *  - BRUSH:  { "points": [...], "stroke": "#000", "strokeWidth": 3 }
      *  - STICKY: { "text": "...", "backgroundColor": "#ff0", ... }
      */
-    @Lob
-    @Column(name = "properties_json", nullable = false, columnDefinition = "text")
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "properties_json", nullable = false, columnDefinition = "jsonb")
     private String propertiesJson;
 
+    /**
+     * Точки BRUSH/ARROW в формате {@link com.example.demo.mapper.PointsCodec};
+     * в propertiesJson поля points при этом нет.
+     */
+    @Column(name = "points_data")
+    private byte[] pointsData;
+
+    /**
+     * Упрощённые уровни детализации точек для выдачи при мелком масштабе.
+     */
+    @Column(name = "points_lod")
+    private byte[] pointsLod;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by_id")
     private User createdBy;
@@ -93,4 +114,30 @@ public class BoardElement {
     @Column(nullable = false)
     private Instant updatedAt = Instant.now();
 
+    /**
+     * Ревизия доски, на которой элемент менялся последний раз.
+     */
+    @Column(nullable = false)
+    private long revision;
+
+    /**
+     * Версия строки: Hibernate увеличивает её при каждом UPDATE и пишет с условием на прежнее значение.
+     * JDBC-обновления обязаны увеличивать её сами.
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * Значение version при последнем изменении геометрии (x, y, width, height, rotation).
+     */
+    @Column(name = "geometry_version", nullable = false)
+    private long geometryVersion;
+
+    /**
+     * Значение version при последнем изменении properties (включая точки).
+     */
+    @Column(name = "properties_version", nullable = false)
+    private long propertiesVersion;
+
 }
\ No newline at end of file
@@ -21,9 +21,19 @@ public class BoardHistoryEvent {
         ELEMENT_GROUPED,
         ELEMENT_UNGROUPED,
         ELEMENT_REORDERED,
+        ELEMENT_BATCH,
         BOARD_RENAMED,
     }
 
+    /**
+     * SNAPSHOT — старые события с полными DTO до/после;
+     * MERGE_PATCH — {"<elementId>": merge-patch} относительно состояния до (after) и после (before) события.
+     */
+    public enum StateFormat {
+        SNAPSHOT,
+        MERGE_PATCH
+    }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -43,14 +53,19 @@ public class BoardHistoryEvent {
     @Column(nullable = false)
     private EventType eventType;
 
-    @Lob
     @Column(name = "before_state_json", columnDefinition = "text")
     private String beforeStateJson;
 
-    @Lob
     @Column(name = "after_state_json", columnDefinition = "text")
     private String afterStateJson;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state_format", nullable = false)
+    private StateFormat stateFormat = StateFormat.MERGE_PATCH;
+
+    @Column(name = "revision")
+    private Long revision;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
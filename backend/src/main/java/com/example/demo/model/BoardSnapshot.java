@@ -0,0 +1,42 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "board_snapshots")
+public class BoardSnapshot {
+
+    public enum Format {
+        JSON_GZIP   // gzip(JSON-массив BoardElementDto)
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "board_id", nullable = false)
+    private Board board;
+
+    @Column(nullable = false)
+    private long revision;
+
+    @Column(nullable = false)
+    private int elementCount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Format format;
+
+    @Column(nullable = false)
+    private byte[] data;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+}
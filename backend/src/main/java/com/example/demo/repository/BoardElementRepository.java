@@ -3,17 +3,70 @@ package com.example.demo.repository;
 import com.example.demo.model.Board;
 import com.example.demo.model.BoardElement;
 import com.example.demo.model.ElementGroup;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 public interface BoardElementRepository extends JpaRepository<BoardElement, Long> {
 
+    // группа и медиа подтягиваются тем же запросом: маппер читает их у каждого элемента
+    @EntityGraph(attributePaths = {"group", "media"})
     List<BoardElement> findAllByBoard(Board board);
 
+    @EntityGraph(attributePaths = {"group", "media"})
+    List<BoardElement> findAllByBoardOrderByOrderKeyAscIdAsc(Board board);
+
+    @EntityGraph(attributePaths = {"group", "media"})
     List<BoardElement> findAllByGroup(ElementGroup group);
 
-    @Query("select max(e.zIndex) from BoardElement e where e.board = :board")
-    Integer findMaxZIndexByBoard(Board board);
+    @EntityGraph(attributePaths = {"group", "media"})
+    List<BoardElement> findAllByBoardAndRevisionGreaterThan(Board board, long revision);
+
+    @EntityGraph(attributePaths = {"group", "media"})
+    List<BoardElement> findAllByBoardAndIdIn(Board board, Collection<Long> ids);
+
+    /**
+     * Элемент, если он принадлежит доске boardUuid, вместе с доской, группой и медиа.
+     */
+    @EntityGraph(attributePaths = {"board", "group", "media"})
+    Optional<BoardElement> findByIdAndBoardUuid(Long id, UUID boardUuid);
+
+    /**
+     * Назначение группы одним UPDATE вместо построчного сохранения.
+     * Контекст персистентности очищается: загруженные элементы после вызова отсоединены.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update BoardElement e
+            set e.group = :group, e.revision = :revision, e.updatedAt = :updatedAt, e.version = e.version + 1
+            where e.id in :ids
+            """)
+    int assignGroup(Collection<Long> ids, ElementGroup group, long revision, Instant updatedAt);
+
+    @Query("select e.version from BoardElement e where e.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("select min(e.orderKey) from BoardElement e where e.board = :board")
+    String findMinOrderKeyByBoard(Board board);
+
+    // zIndex остальных элементов — для /reorder старых клиентов
+    @Query("select max(e.zIndex) from BoardElement e where e.board = :board and e.id <> :id")
+    Integer findMaxZIndexExcept(Board board, Long id);
+
+    @Query("select min(e.zIndex) from BoardElement e where e.board = :board and e.id <> :id")
+    Integer findMinZIndexExcept(Board board, Long id);
+
+    // ближайшие соседи по порядку; идут по индексу (board_id, order_key)
+    @Query("select min(e.orderKey) from BoardElement e where e.board = :board and e.orderKey > :orderKey")
+    String findOrderKeyAbove(Board board, String orderKey);
+
+    @Query("select max(e.orderKey) from BoardElement e where e.board = :board and e.orderKey < :orderKey")
+    String findOrderKeyBelow(Board board, String orderKey);
 }
\ No newline at end of file
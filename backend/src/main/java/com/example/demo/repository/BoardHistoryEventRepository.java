@@ -2,7 +2,65 @@ package com.example.demo.repository;
 
 import com.example.demo.model.BoardHistoryEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface BoardHistoryEventRepository extends JpaRepository<BoardHistoryEvent, Long> {
 
+    /**
+     * События, которые могли затронуть элемент: его собственные и групповые (element_id = null),
+     * до ревизии revision включительно, в порядке ревизий. События до появления ревизий идут первыми.
+     */
+    @Query("""
+            select h from BoardHistoryEvent h
+            where h.board.id = :boardId
+              and (h.revision is null or h.revision <= :revision)
+              and (h.elementId = :elementId or h.elementId is null)
+            order by h.revision nulls first, h.id
+            """)
+    List<BoardHistoryEvent> findElementTimeline(Long boardId, Long elementId, Long revision);
+
+    /**
+     * То же, но только события после снимка: ревизия в (fromRevision, revision].
+     */
+    @Query("""
+            select h from BoardHistoryEvent h
+            where h.board.id = :boardId
+              and h.revision > :fromRevision
+              and h.revision <= :revision
+              and (h.elementId = :elementId or h.elementId is null)
+            order by h.revision, h.id
+            """)
+    List<BoardHistoryEvent> findElementTimelineSince(Long boardId, Long elementId, long fromRevision, Long revision);
+
+    /**
+     * События доски с ревизией в (fromRevision, toRevision] — для восстановления доски по снимку.
+     */
+    @Query("""
+            select h from BoardHistoryEvent h
+            where h.board.id = :boardId
+              and h.revision > :fromRevision
+              and h.revision <= :toRevision
+            order by h.revision, h.id
+            """)
+    List<BoardHistoryEvent> findBoardTimeline(Long boardId, long fromRevision, long toRevision);
+
+    /**
+     * То же для событий без ревизии: порядок и граница по id.
+     */
+    @Query("""
+            select h from BoardHistoryEvent h
+            where h.board.id = :boardId
+              and h.revision is null
+              and h.id <= :eventId
+              and (h.elementId = :elementId or h.elementId is null)
+            order by h.id
+            """)
+    List<BoardHistoryEvent> findLegacyElementTimeline(Long boardId, Long elementId, Long eventId);
+
+    /**
+     * Есть ли у доски события, записанные до появления ревизий.
+     */
+    boolean existsByBoardIdAndRevisionIsNull(Long boardId);
 }
@@ -0,0 +1,239 @@
+package com.example.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание board_history_events: месячные секции, удаление по сроку хранения и сжатие.
+ * Секции называются board_history_events_pYYYYMM и покрывают [первое число месяца, первое число следующего).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BoardHistoryMaintenanceRepository {
+
+    private static final String PARTITION_PREFIX = "board_history_events_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{6})");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String DEFAULT_PARTITION = "board_history_events_default";
+    private static final String COLUMNS = "id, board_id, actor_id, element_id, event_type, before_state_json, "
+            + "after_state_json, created_at, state_format, revision";
+
+    public record BoardRevision(long boardId, long revision) {
+    }
+
+    public record HistoryRow(long id,
+                             Timestamp createdAt,
+                             Long elementId,
+                             String eventType,
+                             String beforeStateJson,
+                             String afterStateJson,
+                             long revision) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ---- секции ----
+
+    /**
+     * Месяцы, для которых есть секции, по возрастанию.
+     */
+    public List<YearMonth> findPartitions() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'board_history_events'::regclass
+                """, String.class);
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.parse(matcher.group(1), MONTH));
+            }
+        }
+        months.sort(null);
+        return months;
+    }
+
+    /**
+     * Создаёт секцию месяца и возвращает число строк, перенесённых в неё из секции по умолчанию.
+     * Пока там лежат строки этого месяца, PostgreSQL не даст создать секцию, поэтому она создаётся
+     * отдельной таблицей, принимает эти строки и только потом подключается. Вызывать в транзакции.
+     */
+    public int createPartition(YearMonth month) {
+        String name = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        // новые строки месяца, пришедшие в секцию по умолчанию после переноса, сорвали бы ATTACH
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN EXCLUSIVE MODE");
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE board_history_events INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE created_at >= ? AND created_at < ? RETURNING " + COLUMNS + ")"
+                        + " INSERT INTO " + name + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM moved",
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+        jdbcTemplate.execute("ALTER TABLE board_history_events ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        return moved;
+    }
+
+    /**
+     * Последняя ревизия каждой доски среди событий секции.
+     */
+    public List<BoardRevision> findBoardRevisionsInPartition(YearMonth month) {
+        return jdbcTemplate.query("SELECT board_id, max(revision) AS revision FROM " + partitionName(month)
+                        + " WHERE revision IS NOT NULL GROUP BY board_id",
+                (rs, rowNum) -> new BoardRevision(rs.getLong("board_id"), rs.getLong("revision")));
+    }
+
+    public void dropPartition(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("ALTER TABLE board_history_events DETACH PARTITION " + name);
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(MONTH);
+    }
+
+    // ---- срок хранения ----
+
+    /**
+     * Ревизия самого раннего снимка доски не ниже revision.
+     */
+    public Optional<Long> findSnapshotRevisionAtOrAfter(long boardId, long revision) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(
+                "SELECT min(revision) FROM board_snapshots WHERE board_id = ? AND revision >= ?",
+                Long.class, boardId, revision));
+    }
+
+    public void raiseFloorRevision(long boardId, long revision) {
+        jdbcTemplate.update(
+                "UPDATE boards SET history_floor_revision = GREATEST(history_floor_revision, ?) WHERE id = ?",
+                revision, boardId);
+    }
+
+    /**
+     * Временные доски старше createdBefore — только у них могут быть события старше срока хранения.
+     */
+    public List<Long> findTemporaryBoardsCreatedBefore(Timestamp createdBefore, int limit) {
+        return jdbcTemplate.queryForList("""
+                        SELECT id FROM boards
+                        WHERE temporary AND created_at < ?
+                        ORDER BY id
+                        LIMIT ?
+                        """,
+                Long.class, createdBefore, limit);
+    }
+
+    /**
+     * Последняя ревизия событий доски, созданных раньше createdBefore и ещё не удалённых.
+     */
+    public Optional<Long> findLastRevisionBefore(long boardId, Timestamp createdBefore) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject("""
+                        SELECT max(h.revision) FROM board_history_events h
+                        JOIN boards b ON b.id = h.board_id
+                        WHERE h.board_id = ? AND h.created_at < ? AND h.revision > b.history_floor_revision
+                        """,
+                Long.class, boardId, createdBefore));
+    }
+
+    /**
+     * Удаляет не больше limit событий доски с ревизией до revision включительно.
+     */
+    public int deleteEventsUpTo(long boardId, long revision, int limit) {
+        // id уникален во всех секциях (общая последовательность), ctid — нет
+        return jdbcTemplate.update("""
+                        DELETE FROM board_history_events
+                        WHERE id = ANY(ARRAY(
+                            SELECT id FROM board_history_events
+                            WHERE board_id = ? AND revision <= ?
+                            LIMIT ?))
+                        """,
+                boardId, revision, limit);
+    }
+
+    // ---- сжатие ----
+
+    /**
+     * Доски с несжатыми событиями; давно не обработанные — первыми.
+     */
+    public List<Long> findBoardsDueForCompaction(int limit) {
+        return jdbcTemplate.queryForList("""
+                        SELECT id FROM boards
+                        WHERE revision > history_compacted_revision
+                        ORDER BY history_compacted_at NULLS FIRST
+                        LIMIT ?
+                        """,
+                Long.class, limit);
+    }
+
+    public long findCompactedRevision(long boardId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT history_compacted_revision FROM boards WHERE id = ?", Long.class, boardId);
+    }
+
+    public Optional<Long> findLastRevisionCreatedBefore(long boardId, long afterRevision, Timestamp createdBefore) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject("""
+                        SELECT max(revision) FROM board_history_events
+                        WHERE board_id = ? AND revision > ? AND created_at < ?
+                        """,
+                Long.class, boardId, afterRevision, createdBefore));
+    }
+
+    /**
+     * События MERGE_PATCH доски с ревизией в (fromRevision, toRevision], не больше limit.
+     */
+    public List<HistoryRow> findPatchEvents(long boardId, long fromRevision, long toRevision, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, created_at, element_id, event_type, before_state_json, after_state_json, revision
+                        FROM board_history_events
+                        WHERE board_id = ? AND revision > ? AND revision <= ? AND state_format = 'MERGE_PATCH'
+                        ORDER BY revision, id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> {
+                    long elementId = rs.getLong("element_id");
+                    return new HistoryRow(
+                            rs.getLong("id"),
+                            rs.getTimestamp("created_at"),
+                            rs.wasNull() ? null : elementId,
+                            rs.getString("event_type"),
+                            rs.getString("before_state_json"),
+                            rs.getString("after_state_json"),
+                            rs.getLong("revision"));
+                },
+                boardId, fromRevision, toRevision, limit);
+    }
+
+    public void updateEventStates(HistoryRow row, String beforeStateJson, String afterStateJson) {
+        jdbcTemplate.update("""
+                        UPDATE board_history_events SET before_state_json = ?, after_state_json = ?
+                        WHERE id = ? AND created_at = ?
+                        """,
+                beforeStateJson, afterStateJson, row.id(), row.createdAt());
+    }
+
+    public void deleteEvents(List<HistoryRow> rows) {
+        jdbcTemplate.batchUpdate("DELETE FROM board_history_events WHERE id = ? AND created_at = ?",
+                rows.stream().map(row -> new Object[]{row.id(), row.createdAt()}).toList());
+    }
+
+    public void markCompacted(long boardId, long revision) {
+        jdbcTemplate.update("""
+                        UPDATE boards SET history_compacted_revision = GREATEST(history_compacted_revision, ?),
+                                          history_compacted_at = now()
+                        WHERE id = ?
+                        """,
+                revision, boardId);
+    }
+}
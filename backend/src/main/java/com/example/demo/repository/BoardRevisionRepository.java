@@ -0,0 +1,70 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ревизии досок и надгробия удалённых элементов.
+ * Выдача ревизии блокирует строку доски до конца транзакции,
+ * поэтому ревизии одной доски коммитятся строго по возрастанию.
+ * Заодно пересчитывается snapshot_due: накопилось ли с последнего снимка min-changes ревизий.
+ */
+@Repository
+public class BoardRevisionRepository {
+
+    private static final String NEXT_REVISION = """
+            UPDATE boards SET revision = revision + 1,
+                              snapshot_due = revision + 1 - last_snapshot_revision >= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long snapshotMinChanges;
+
+    public BoardRevisionRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${board.snapshot.min-changes:500}") long snapshotMinChanges) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotMinChanges = snapshotMinChanges;
+    }
+
+    public long nextRevision(Long boardId) {
+        return jdbcTemplate.queryForObject(NEXT_REVISION + " WHERE id = ? RETURNING revision",
+                Long.class, snapshotMinChanges, boardId);
+    }
+
+    public long nextRevision(UUID boardUuid) {
+        return jdbcTemplate.queryForObject(NEXT_REVISION + " WHERE uuid = ? RETURNING revision",
+                Long.class, snapshotMinChanges, boardUuid);
+    }
+
+    /**
+     * Снимок доски на revision готов: доска выходит из очереди на снимок,
+     * если за время снимка не накопила новых min-changes ревизий.
+     */
+    public void markSnapshotted(long boardId, long revision) {
+        jdbcTemplate.update("""
+                        UPDATE boards SET last_snapshot_revision = GREATEST(last_snapshot_revision, ?),
+                                          snapshot_due = revision - GREATEST(last_snapshot_revision, ?) >= ?
+                        WHERE id = ?
+                        """,
+                revision, revision, snapshotMinChanges, boardId);
+    }
+
+    public void saveTombstones(Long boardId, List<Long> elementIds, long revision) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO board_element_tombstones (board_id, element_id, revision)
+                        VALUES (?, ?, ?)
+                        ON CONFLICT (board_id, element_id) DO UPDATE SET revision = EXCLUDED.revision
+                        """,
+                elementIds.stream().map(id -> new Object[]{boardId, id, revision}).toList());
+    }
+
+    public List<Long> findTombstonesSince(Long boardId, long revision) {
+        return jdbcTemplate.queryForList(
+                "SELECT element_id FROM board_element_tombstones WHERE board_id = ? AND revision > ?",
+                Long.class, boardId, revision);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Board;
+import com.example.demo.model.BoardSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BoardSnapshotRepository extends JpaRepository<BoardSnapshot, Long> {
+
+    Optional<BoardSnapshot> findFirstByBoardOrderByRevisionDesc(Board board);
+
+    Optional<BoardSnapshot> findFirstByBoardAndRevisionLessThanEqualOrderByRevisionDesc(Board board, long revision);
+
+    /**
+     * Доски, у которых с последнего снимка накопилось не меньше minChanges ревизий.
+     * Идёт по частичному индексу snapshot_due, а не по всем доскам.
+     */
+    @Query(value = """
+            SELECT id FROM boards
+            WHERE snapshot_due AND revision - last_snapshot_revision >= :minChanges
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findBoardsDueForSnapshot(long minChanges, int limit);
+
+    /**
+     * Оставляет у доски только keep последних снимков.
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM board_snapshots
+            WHERE board_id = :boardId
+              AND id NOT IN (SELECT id FROM board_snapshots WHERE board_id = :boardId
+                             ORDER BY revision DESC LIMIT :keep)
+            """, nativeQuery = true)
+    int deleteOlderThanLatest(Long boardId, int keep);
+}
@@ -0,0 +1,254 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.model.BoardElement.ElementType;
+import com.example.demo.service.BoardElementCrdt.Operation;
+import com.example.demo.service.BoardElementCrdt.Stamp;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * CRDT-реплики досок на этом узле ({@link BoardElementCrdt}); при board.crdt.enabled=true
+ * полный список элементов доски отдаётся из реплики.
+ * <p>
+ * Реплика загружается из БД при первом обращении. Закоммиченные изменения превращает в операции
+ * BoardEventRelay: свои — через {@link #record}, и операции едут к другим узлам в пачке BoardEventBus;
+ * чужие применяются через {@link #applyRemote}. Метка операции — ревизия доски
+ * ({@link Stamp#ofRevision}), а не время прихода события: ревизии одной доски упорядочены БД,
+ * поэтому слушатели, сработавшие не по порядку, и загрузка из БД сходятся к одному состоянию.
+ * Кадры перемещения в реплику не попадают — это черновики, итог жеста придёт закоммиченным.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "board.crdt.enabled", havingValue = "true")
+public class BoardCrdtReplicas {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final BoardElementService boardElementService;
+    private final ObjectMapper objectMapper;
+    private final int maxBoards;
+
+    private final LinkedHashMap<UUID, BoardElementCrdt> replicas = new LinkedHashMap<>(16, 0.75f, true);
+
+    public BoardCrdtReplicas(BoardElementService boardElementService,
+                             ObjectMapper objectMapper,
+                             @Value("${board.crdt.max-boards:500}") int maxBoards) {
+        this.boardElementService = boardElementService;
+        this.objectMapper = objectMapper;
+        this.maxBoards = maxBoards;
+    }
+
+    /**
+     * Операции, соответствующие закоммиченному изменению (своему или дочитанному из БД);
+     * уже применены к реплике этого узла. Только изменившиеся поля, чтобы пачка шины оставалась маленькой.
+     */
+    public List<Operation> record(BoardElementEvent event) {
+        if (event.getRevision() == null) {
+            return List.of();
+        }
+        Stamp stamp = Stamp.ofRevision(event.getRevision());
+        BoardElementCrdt crdt = replica(event.getBoardUuid());
+        List<Operation> operations = new ArrayList<>();
+        synchronized (crdt) {
+            for (BoardElementDto dto : event.getUpserts()) {
+                Map<String, JsonNode> fields = toFields(dto);
+                if (!crdt.contains(dto.getId())) {
+                    operations.add(Operation.add(dto.getId(), stamp, Stamp.CREATED, fields));
+                    continue;
+                }
+                Map<String, JsonNode> changed = changedFields(crdt.fields(dto.getId()), fields);
+                if (!changed.isEmpty()) {
+                    operations.add(Operation.set(dto.getId(), stamp, changed));
+                }
+            }
+            for (Long id : event.getDeletedIds()) {
+                // id не переиспользуются, так что снимаем единственную метку добавления, даже если её
+                // ещё не видели: параллельная загрузка из БД не воскресит удалённый элемент
+                operations.add(Operation.remove(id, stamp, Set.of(Stamp.CREATED)));
+            }
+            operations.forEach(crdt::apply);
+        }
+        return operations;
+    }
+
+    /**
+     * Операции другого узла. Доски, которых нет в памяти, пропускаются: при загрузке из БД
+     * реплика получит закоммиченное состояние.
+     */
+    public void applyRemote(UUID boardUuid, List<Operation> operations) {
+        BoardElementCrdt crdt;
+        synchronized (replicas) {
+            crdt = replicas.get(boardUuid);
+        }
+        if (crdt == null) {
+            return;
+        }
+        synchronized (crdt) {
+            operations.forEach(crdt::apply);
+        }
+    }
+
+    /**
+     * Элементы доски по реплике, в порядке отрисовки.
+     */
+    public List<BoardElementDto> elements(UUID boardUuid) {
+        BoardElementCrdt crdt = replica(boardUuid);
+        synchronized (crdt) {
+            List<BoardElementDto> elements = new ArrayList<>();
+            for (Long id : crdt.visibleIds()) {
+                elements.add(toDto(id, crdt.fields(id)));
+            }
+            return elements;
+        }
+    }
+
+    public void evict(UUID boardUuid) {
+        synchronized (replicas) {
+            replicas.remove(boardUuid);
+        }
+    }
+
+    public void evictAll() {
+        synchronized (replicas) {
+            replicas.clear();
+        }
+    }
+
+    private BoardElementCrdt replica(UUID boardUuid) {
+        synchronized (replicas) {
+            BoardElementCrdt crdt = replicas.get(boardUuid);
+            if (crdt != null) {
+                return crdt;
+            }
+        }
+        // БД читаем без блокировки; параллельная загрузка сливается с уже вставленной репликой
+        BoardElementCrdt loaded = load(boardUuid);
+        BoardElementCrdt crdt;
+        synchronized (replicas) {
+            crdt = replicas.putIfAbsent(boardUuid, loaded);
+            if (crdt == null) {
+                trim();
+                return loaded;
+            }
+        }
+        synchronized (crdt) {
+            crdt.merge(loaded);
+        }
+        return crdt;
+    }
+
+    private BoardElementCrdt load(UUID boardUuid) {
+        BoardElementCrdt crdt = new BoardElementCrdt();
+        for (BoardElementDto dto : boardElementService.getElementsByBoardUuid(boardUuid)) {
+            crdt.apply(Operation.add(dto.getId(), Stamp.ofRevision(dto.getRevision()), Stamp.CREATED, toFields(dto)));
+        }
+        return crdt;
+    }
+
+    private void trim() {
+        Iterator<UUID> eldest = replicas.keySet().iterator();
+        while (replicas.size() > maxBoards && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static Map<String, JsonNode> changedFields(Map<String, JsonNode> current, Map<String, JsonNode> fields) {
+        Map<String, JsonNode> changed = new LinkedHashMap<>();
+        fields.forEach((field, value) -> {
+            JsonNode before = current.get(field);
+            if (isAbsent(value) ? before != null : !value.equals(before)) {
+                changed.put(field, isAbsent(value) ? NullNode.getInstance() : value);
+            }
+        });
+        // исчезнувший ключ properties — тоже запись null
+        current.keySet().forEach(field -> {
+            if (field.startsWith(BoardElementCrdt.PROPERTIES_PREFIX) && !fields.containsKey(field)) {
+                changed.put(field, NullNode.getInstance());
+            }
+        });
+        return changed;
+    }
+
+    private static boolean isAbsent(JsonNode value) {
+        return value == null || value.isNull();
+    }
+
+    private Map<String, JsonNode> toFields(BoardElementDto dto) {
+        Map<String, JsonNode> fields = new LinkedHashMap<>();
+        fields.put("type", NODES.textNode(dto.getType().name()));
+        fields.put("x", NODES.numberNode(dto.getX()));
+        fields.put("y", NODES.numberNode(dto.getY()));
+        fields.put("width", NODES.numberNode(dto.getWidth()));
+        fields.put("height", NODES.numberNode(dto.getHeight()));
+        fields.put("rotation", NODES.numberNode(dto.getRotation()));
+        fields.put("zIndex", NODES.numberNode(dto.getZIndex()));
+        fields.put(BoardElementCrdt.ORDER_KEY, NODES.textNode(dto.getOrderKey()));
+        fields.put("groupId", NODES.textNode(dto.getGroupId()));
+        fields.put("lockedPosition", NODES.booleanNode(dto.isLockedPosition()));
+        fields.put("lockedEditing", NODES.booleanNode(dto.isLockedEditing()));
+        fields.put("mediaId", NODES.numberNode(dto.getMediaId()));
+        fields.put("revision", NODES.numberNode(dto.getRevision()));
+        fields.put("version", NODES.numberNode(dto.getVersion()));
+        if (dto.getProperties() != null) {
+            try {
+                JsonNode properties = objectMapper.readTree(dto.getProperties());
+                properties.fields().forEachRemaining(property ->
+                        fields.put(BoardElementCrdt.PROPERTIES_PREFIX + property.getKey(), property.getValue()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid element properties", e);
+            }
+        }
+        fields.replaceAll((field, value) -> value == null ? NullNode.getInstance() : value);
+        return fields;
+    }
+
+    private BoardElementDto toDto(long id, Map<String, JsonNode> fields) {
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(id);
+        ObjectNode properties = NODES.objectNode();
+        fields.forEach((field, value) -> {
+            switch (field) {
+                case "type" -> dto.setType(ElementType.valueOf(value.asText()));
+                case "x" -> dto.setX(value.asDouble());
+                case "y" -> dto.setY(value.asDouble());
+                case "width" -> dto.setWidth(value.asDouble());
+                case "height" -> dto.setHeight(value.asDouble());
+                case "rotation" -> dto.setRotation(value.asDouble());
+                case "zIndex" -> dto.setZIndex(value.asInt());
+                case BoardElementCrdt.ORDER_KEY -> dto.setOrderKey(value.asText());
+                case "groupId" -> dto.setGroupId(value.asText());
+                case "lockedPosition" -> dto.setLockedPosition(value.asBoolean());
+                case "lockedEditing" -> dto.setLockedEditing(value.asBoolean());
+                case "mediaId" -> dto.setMediaId(value.asLong());
+                case "revision" -> dto.setRevision(value.asLong());
+                case "version" -> dto.setVersion(value.asLong());
+                default -> {
+                    if (field.startsWith(BoardElementCrdt.PROPERTIES_PREFIX)) {
+                        properties.set(field.substring(BoardElementCrdt.PROPERTIES_PREFIX.length()), value);
+                    }
+                }
+            }
+        });
+        dto.setProperties(properties.toString());
+        return dto;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш активно редактируемых досок: декодированные элементы по UUID доски
+ * и сетка ElementSpatialIndex для запросов по области видимости.
+ * Наполняется при чтении, обновляется дельтами BoardElementEvent,
+ * вытесняется по LRU и по простою.
+ * <p>
+ * Слушатели AFTER_COMMIT разных транзакций могут прийти в любом порядке, поэтому дельта
+ * применяется, только если она не старше закэшированного состояния: элемент хранит ревизию
+ * последней записи, удалённый — надгробие с ревизией удаления.
+ */
+@Component
+public class BoardElementCache {
+
+    private final int maxBoards;
+    private final long idleTimeoutMs;
+    private final double gridCellSize;
+
+    private final LinkedHashMap<UUID, CachedBoard> boards = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Доски, которые сейчас загружаются из БД; событие во время загрузки делает её результат устаревшим. */
+    private final Map<UUID, LoadTicket> loads = new ConcurrentHashMap<>();
+
+    public BoardElementCache(@Value("${board.cache.max-boards:200}") int maxBoards,
+                             @Value("${board.cache.idle-timeout-ms:600000}") long idleTimeoutMs,
+                             @Value("${board.cache.grid-cell-size:512}") double gridCellSize) {
+        this.maxBoards = maxBoards;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.gridCellSize = gridCellSize;
+    }
+
+    /** Порядок отрисовки — тот же, что у выборки из БД. */
+    private static final Comparator<BoardElementDto> DRAW_ORDER =
+            Comparator.comparing(BoardElementDto::getOrderKey, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                    .thenComparing(BoardElementDto::getId);
+
+    private static final class CachedBoard {
+        private final Map<Long, BoardElementDto> elements = new ConcurrentHashMap<>();
+        /** Ревизии удаления элементов: запоздавшая дельта не должна их воскресить. */
+        private final Map<Long, Long> tombstones = new ConcurrentHashMap<>();
+        private final ElementSpatialIndex index;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CachedBoard(double gridCellSize) {
+            this.index = new ElementSpatialIndex(gridCellSize);
+        }
+
+        private void put(BoardElementDto dto) {
+            elements.put(dto.getId(), dto);
+            index.put(dto.getId(), ElementBounds.of(dto));
+        }
+
+        private synchronized void upsert(BoardElementDto dto) {
+            BoardElementDto current = elements.get(dto.getId());
+            if (current != null && dto.getRevision() < current.getRevision()) {
+                return;
+            }
+            Long deletedAt = tombstones.get(dto.getId());
+            if (deletedAt != null && dto.getRevision() <= deletedAt) {
+                return;
+            }
+            put(dto);
+        }
+
+        /**
+         * Кадр перемещения: несёт DTO начала жеста, поэтому меняет только геометрию,
+         * и только если с начала жеста элемент не переписывали.
+         */
+        private synchronized void applyFrame(BoardElementDto frame) {
+            BoardElementDto current = elements.get(frame.getId());
+            if (current == null || frame.getRevision() < current.getRevision()) {
+                return;
+            }
+            BoardElementDto moved = copyOf(current);
+            moved.setX(frame.getX());
+            moved.setY(frame.getY());
+            moved.setWidth(frame.getWidth());
+            moved.setHeight(frame.getHeight());
+            moved.setRotation(frame.getRotation());
+            put(moved);
+        }
+
+        private synchronized void remove(Long id, long revision) {
+            BoardElementDto current = elements.get(id);
+            if (current != null && revision < current.getRevision()) {
+                return;
+            }
+            tombstones.merge(id, revision, Math::max);
+            elements.remove(id);
+            index.remove(id);
+        }
+    }
+
+    public static final class LoadTicket {
+        private volatile boolean stale;
+    }
+
+    private CachedBoard touch(UUID boardUuid) {
+        CachedBoard board;
+        synchronized (boards) {
+            board = boards.get(boardUuid);
+        }
+        if (board != null) {
+            board.lastAccess = System.currentTimeMillis();
+        }
+        return board;
+    }
+
+    public Optional<List<BoardElementDto>> get(UUID boardUuid) {
+        CachedBoard board = touch(boardUuid);
+        if (board == null) {
+            return Optional.empty();
+        }
+        return Optional.of(board.elements.values().stream()
+                .sorted(DRAW_ORDER)
+                .toList());
+    }
+
+    /**
+     * Элементы закэшированной доски, пересекающие viewport.
+     */
+    public Optional<List<BoardElementDto>> query(UUID boardUuid, ElementBounds viewport) {
+        CachedBoard board = touch(boardUuid);
+        if (board == null) {
+            return Optional.empty();
+        }
+        return Optional.of(board.index.query(viewport).stream()
+                .map(board.elements::get)
+                .filter(Objects::nonNull)
+                .sorted(DRAW_ORDER)
+                .toList());
+    }
+
+    /**
+     * Регистрирует начало загрузки доски из БД. Вызывать до чтения.
+     */
+    public LoadTicket beginLoad(UUID boardUuid) {
+        LoadTicket ticket = new LoadTicket();
+        loads.put(boardUuid, ticket);
+        return ticket;
+    }
+
+    /**
+     * Кладёт загруженные элементы в кэш, если за время загрузки доска не менялась.
+     */
+    public void completeLoad(UUID boardUuid, LoadTicket ticket, List<BoardElementDto> elements) {
+        if (!loads.remove(boardUuid, ticket) || ticket.stale) {
+            return;
+        }
+        CachedBoard board = new CachedBoard(gridCellSize);
+        for (BoardElementDto dto : elements) {
+            board.put(dto);
+        }
+        synchronized (boards) {
+            boards.put(boardUuid, board);
+            while (boards.size() > maxBoards) {
+                Iterator<UUID> eldest = boards.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public void evict(UUID boardUuid) {
+        synchronized (boards) {
+            boards.remove(boardUuid);
+        }
+        LoadTicket ticket = loads.get(boardUuid);
+        if (ticket != null) {
+            ticket.stale = true;
+        }
+    }
+
+    public void evictAll() {
+        synchronized (boards) {
+            boards.clear();
+        }
+        loads.values().forEach(ticket -> ticket.stale = true);
+    }
+
+    /**
+     * Применяет дельту после коммита. Кадры потокового перемещения
+     * публикуются вне транзакции и применяются сразу.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onElementEvent(BoardElementEvent event) {
+        LoadTicket ticket = loads.get(event.getBoardUuid());
+        if (ticket != null) {
+            ticket.stale = true;
+        }
+
+        CachedBoard board;
+        synchronized (boards) {
+            board = boards.get(event.getBoardUuid());
+        }
+        if (board == null) {
+            return;
+        }
+        for (BoardElementDto dto : event.getUpserts()) {
+            if (event.getRevision() == null) {
+                board.applyFrame(dto);
+            } else {
+                board.upsert(dto);
+            }
+        }
+        for (Long id : event.getDeletedIds()) {
+            board.remove(id, event.getRevision() != null ? event.getRevision() : Long.MAX_VALUE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${board.cache.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleTimeoutMs;
+        synchronized (boards) {
+            boards.values().removeIf(board -> board.lastAccess < threshold);
+        }
+    }
+
+    private static BoardElementDto copyOf(BoardElementDto source) {
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(source.getId());
+        dto.setType(source.getType());
+        dto.setX(source.getX());
+        dto.setY(source.getY());
+        dto.setWidth(source.getWidth());
+        dto.setHeight(source.getHeight());
+        dto.setRotation(source.getRotation());
+        dto.setZIndex(source.getZIndex());
+        dto.setOrderKey(source.getOrderKey());
+        dto.setGroupId(source.getGroupId());
+        dto.setLockedPosition(source.isLockedPosition());
+        dto.setLockedEditing(source.isLockedEditing());
+        dto.setMediaId(source.getMediaId());
+        dto.setRevision(source.getRevision());
+        dto.setVersion(source.getVersion());
+        dto.setProperties(source.getProperties());
+        dto.setPointsLod(source.getPointsLod());
+        return dto;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CRDT-представление элементов одной доски.
+ * <ul>
+ *     <li>состав — OR-set: элемент виден, пока у него есть метка добавления, не покрытая удалением;
+ *     удаление снимает только те метки, которые видел удаливший узел;</li>
+ *     <li>каждое поле (и каждый ключ properties отдельно) — LWW-регистр по {@link Stamp};
+ *     JSON null в регистре означает удалённый ключ, как в JSON Merge Patch;</li>
+ *     <li>порядок — дробный ключ orderKey ({@link OrderKeys}); одинаковые ключи после
+ *     параллельных перемещений упорядочиваются по id.</li>
+ * </ul>
+ * Операции идемпотентны и коммутативны, поэтому реплики, получившие одно и то же множество
+ * операций в любом порядке, сходятся. Класс не потокобезопасен: синхронизирует вызывающий.
+ */
+public final class BoardElementCrdt {
+
+    public static final String ORDER_KEY = "orderKey";
+    public static final String PROPERTIES_PREFIX = "properties.";
+
+    /**
+     * Метка записи: время, счётчик внутри миллисекунды, узел — как у {@link HybridLogicalClock}.
+     * Задаёт общий для всех узлов порядок записей; у закоммиченных изменений это ревизия доски.
+     */
+    public record Stamp(long time, long counter, String node) implements Comparable<Stamp> {
+
+        private static final Comparator<Stamp> ORDER = Comparator.comparingLong(Stamp::time)
+                .thenComparingLong(Stamp::counter)
+                .thenComparing(Stamp::node);
+
+        /**
+         * Метка добавления строки board_elements. Строка добавляется один раз (id не переиспользуются),
+         * поэтому метка одна и та же у узла, получившего ADD, и у узла, загрузившего элемент из БД.
+         * Повторное добавление того же id (если появится) должно брать свежую метку часов.
+         */
+        public static final Stamp CREATED = new Stamp(0, 0, "");
+
+        /**
+         * Метка изменения, закоммиченного на ревизии revision: одинакова на всех узлах — и у операции,
+         * и у строки, загруженной из БД, — и упорядочена так же, как ревизии доски.
+         */
+        public static Stamp ofRevision(long revision) {
+            return new Stamp(0, revision, "");
+        }
+
+        @Override
+        public int compareTo(Stamp other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    public enum Kind {
+        /** Метки добавления из tags и значения полей. */
+        ADD,
+        /** Значения полей; состав не меняет. */
+        SET,
+        /** Снимает метки добавления из tags — те, что видел удаливший узел. */
+        REMOVE
+    }
+
+    /**
+     * Операция над элементом: stamp упорядочивает записи полей, tags — метки добавления.
+     */
+    public record Operation(Kind kind, long elementId, Stamp stamp, Map<String, JsonNode> fields, Set<Stamp> tags) {
+
+        public static Operation add(long elementId, Stamp stamp, Stamp tag, Map<String, JsonNode> fields) {
+            return new Operation(Kind.ADD, elementId, stamp, fields, Set.of(tag));
+        }
+
+        public static Operation set(long elementId, Stamp stamp, Map<String, JsonNode> fields) {
+            return new Operation(Kind.SET, elementId, stamp, fields, Set.of());
+        }
+
+        public static Operation remove(long elementId, Stamp stamp, Set<Stamp> observed) {
+            return new Operation(Kind.REMOVE, elementId, stamp, Map.of(), observed);
+        }
+    }
+
+    private record Register(Stamp stamp, JsonNode value) {
+    }
+
+    private static final class Entry {
+        private final Set<Stamp> tags = new HashSet<>();
+        private final Set<Stamp> removed = new HashSet<>();
+        private final Map<String, Register> fields = new HashMap<>();
+
+        private boolean visible() {
+            for (Stamp tag : tags) {
+                if (!removed.contains(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void write(String field, Stamp stamp, JsonNode value) {
+            Register current = fields.get(field);
+            if (current == null || current.stamp().compareTo(stamp) < 0) {
+                fields.put(field, new Register(stamp, value));
+            }
+        }
+    }
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    public void apply(Operation op) {
+        Entry entry = entries.computeIfAbsent(op.elementId(), id -> new Entry());
+        switch (op.kind()) {
+            case ADD -> entry.tags.addAll(op.tags());
+            case REMOVE -> entry.removed.addAll(op.tags());
+            case SET -> {
+            }
+        }
+        // правка удалённого элемента не воскрешает его, но значения сохраняются на случай параллельного ADD
+        op.fields().forEach((field, value) -> entry.write(field, op.stamp(), value));
+    }
+
+    /**
+     * Слияние с состоянием другой реплики (или со свежей загрузкой из БД).
+     */
+    public void merge(BoardElementCrdt other) {
+        other.entries.forEach((id, source) -> {
+            Entry entry = entries.computeIfAbsent(id, key -> new Entry());
+            entry.tags.addAll(source.tags);
+            entry.removed.addAll(source.removed);
+            source.fields.forEach((field, register) -> entry.write(field, register.stamp(), register.value()));
+        });
+    }
+
+    public boolean contains(long elementId) {
+        Entry entry = entries.get(elementId);
+        return entry != null && entry.visible();
+    }
+
+    /**
+     * Метки добавления, которые должна снять операция удаления, сделанная на этой реплике.
+     */
+    public Set<Stamp> liveTags(long elementId) {
+        Entry entry = entries.get(elementId);
+        if (entry == null) {
+            return Set.of();
+        }
+        Set<Stamp> live = new HashSet<>(entry.tags);
+        live.removeAll(entry.removed);
+        return live;
+    }
+
+    /**
+     * Текущие значения полей элемента без удалённых (null) ключей; пустая карта, если элемента нет.
+     */
+    public Map<String, JsonNode> fields(long elementId) {
+        Entry entry = entries.get(elementId);
+        if (entry == null || !entry.visible()) {
+            return Map.of();
+        }
+        Map<String, JsonNode> values = new LinkedHashMap<>();
+        entry.fields.forEach((field, register) -> {
+            if (register.value() != null && !register.value().isNull()) {
+                values.put(field, register.value());
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Видимые элементы в порядке отрисовки: по orderKey, при равных ключах — по id.
+     */
+    public List<Long> visibleIds() {
+        List<Long> ids = new ArrayList<>();
+        entries.forEach((id, entry) -> {
+            if (entry.visible()) {
+                ids.add(id);
+            }
+        });
+        ids.sort(Comparator.comparing((Long id) -> orderKey(entries.get(id)), Comparator.nullsFirst(String::compareTo))
+                .thenComparing(Comparator.naturalOrder()));
+        return ids;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String orderKey(Entry entry) {
+        Register register = entry.fields.get(ORDER_KEY);
+        return register == null || register.value() == null || register.value().isNull()
+                ? null
+                : register.value().asText();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Рассылает дельты элементов всем подписчикам доски.
+ * Событие уходит только после коммита транзакции, чтобы клиенты
+ * не увидели изменения, которые потом откатились.
+ */
+@Component
+@RequiredArgsConstructor
+public class BoardElementEventBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public static String topicFor(UUID boardUuid) {
+        return "/topic/boards/" + boardUuid + "/elements";
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onElementEvent(BoardElementEvent event) {
+        messagingTemplate.convertAndSend(topicFor(event.getBoardUuid()), event);
+    }
+}
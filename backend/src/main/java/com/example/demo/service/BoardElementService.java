@@ -1,28 +1,81 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface BoardElementService {
 
     List<BoardElementDto> getElementsByBoardUuid(UUID boardUuid);
 
+    /**
+     * Текущее состояние элемента доски из БД; пусто, если элемента (или доски) нет.
+     */
+    Optional<BoardElementDto> findElement(UUID boardUuid, Long elementId);
+
+    /**
+     * Элементы, чей bbox (с учётом поворота) пересекает прямоугольник видимой области.
+     */
+    List<BoardElementDto> getElementsInViewport(UUID boardUuid, double minX, double minY, double maxX, double maxY,
+                                                Double scale);
+
+    /**
+     * Все элементы доски в NDJSON (по объекту на строку), без сборки списка в памяти:
+     * строки читаются курсором порциями и сразу пишутся в ответ.
+     * Доска проверяется сразу, чтение начинается при вызове writeTo.
+     */
+    StreamingResponseBody streamElements(UUID boardUuid);
+
+    /**
+     * Элементы, изменённые после ревизии since, и идентификаторы удалённых с тех пор.
+     */
+    BoardChangesDto getChangesSince(UUID boardUuid, long since);
+
     BoardElementDto createElement(UUID boardUuid, BoardElementCreateRequest request);
 
     BoardElementDto updateElement(UUID boardUuid, Long elementId, BoardElementUpdateRequest request);
 
     BoardElementDto transformElement(UUID boardUuid, Long elementId, ElementTransformRequest request);
 
+    /**
+     * Начало потокового перемещения: проверяет доступ и блокировку,
+     * возвращает состояние элемента до жеста.
+     */
+    BoardElementDto beginTransformGesture(UUID boardUuid, Long elementId);
+
+    /**
+     * Сохраняет накопленную геометрию жеста. Блокировка и request.baseVersion проверяются
+     * заново — по строке, прочитанной под блокировкой ревизии доски.
+     * Если передан gestureStart — жест завершён: пишется одно событие истории
+     * и рассылается итоговое состояние.
+     */
+    BoardElementDto persistTransformGesture(UUID boardUuid, Long elementId,
+                                            ElementTransformRequest request,
+                                            BoardElementDto gestureStart);
+
     GroupElementsResponse groupElements(UUID boardUuid, GroupElementsRequest request);
 
     void ungroupElements(UUID boardUuid, UngroupElementsRequest request);
 
     void reorderElements(UUID boardUuid, ReorderElementsRequest request);
 
+    /**
+     * Перемещает элемент по z-порядку, меняя только его ключ порядка.
+     */
+    BoardElementDto moveElement(UUID boardUuid, Long elementId, ElementMoveRequest request);
+
     void deleteElement(UUID boardUuid, Long elementId);
 
     CopyElementsResponse copyElements(UUID boardUuid, CopyElementsRequest request);
 
+    /**
+     * Применяет набор операций в одной транзакции с одной ревизией и одним событием истории.
+     * Ответ — итоговое состояние затронутых элементов.
+     */
+    BoardChangesDto applyBatch(UUID boardUuid, ElementBatchRequest request);
+
     BoardElementDto updateLocks(UUID boardUuid, Long elementId, ElementLockRequest request);
 }
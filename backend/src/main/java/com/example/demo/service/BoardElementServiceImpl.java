@@ -1,38 +1,61 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.BoardChangesDto;
 import com.example.demo.dto.BoardElementCreateRequest;
 import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
 import com.example.demo.dto.BoardElementUpdateRequest;
 import com.example.demo.dto.CopyElementsRequest;
 import com.example.demo.dto.CopyElementsResponse;
+import com.example.demo.dto.ElementBatchOperation;
+import com.example.demo.dto.ElementBatchRequest;
 import com.example.demo.dto.ElementLockRequest;
+import com.example.demo.dto.ElementMoveRequest;
 import com.example.demo.dto.ElementOrderDto;
 import com.example.demo.dto.ElementTransformRequest;
 import com.example.demo.dto.GroupElementsRequest;
 import com.example.demo.dto.GroupElementsResponse;
 import com.example.demo.dto.ReorderElementsRequest;
 import com.example.demo.dto.UngroupElementsRequest;
+import com.example.demo.exception.ConflictException;
 import com.example.demo.exception.NotFoundException;
 import com.example.demo.mapper.BoardElementMapper;
+import com.example.demo.mapper.BoardElementRowMapper;
 import com.example.demo.model.Board;
 import com.example.demo.model.BoardElement;
 import com.example.demo.model.BoardHistoryEvent;
 import com.example.demo.model.ElementGroup;
 import com.example.demo.repository.BoardElementRepository;
-import com.example.demo.repository.BoardHistoryEventRepository;
 import com.example.demo.repository.BoardRepository;
+import com.example.demo.repository.BoardRevisionRepository;
 import com.example.demo.repository.ElementGroupRepository;
 import com.example.demo.security.AuthUser;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ValidationException;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -40,15 +63,30 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
+@Timed(value = "board.element.service", histogram = true)
 public class BoardElementServiceImpl implements BoardElementService {
 
+    // строк за одно обращение к курсору при потоковой выдаче доски
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final BoardRepository boardRepository;
     private final BoardElementRepository elementRepository;
     private final ElementGroupRepository groupRepository;
-    private final BoardHistoryEventRepository historyRepository;
+    private final BoardHistoryWriter historyWriter;
 
     private final BoardElementMapper elementMapper;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BoardElementCache elementCache;
+    private final BoardRevisionRepository revisionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final BoardSnapshotService snapshotService;
+    private final MeterRegistry meterRegistry;
+    private final BoardElementRowMapper rowMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ElementPointsPacker pointsPacker;
+    private final EntityManager entityManager;
+    private final ElementGeometryWriteBehind geometryWriter;
 //    private final AuthUser authUser;
 
     private Board getBoardOrThrow(UUID boardUuid) {
@@ -56,66 +94,84 @@ public class BoardElementServiceImpl implements BoardElementService {
                 .orElseThrow(() -> new NotFoundException("Board not found: " + boardUuid));
     }
 
-    private BoardElement getElementForBoardOrThrow(Board board, Long elementId) {
-        BoardElement element = elementRepository.findById(elementId)
-                .orElseThrow(() -> new NotFoundException("Element not found: " + elementId));
-
-        if (!element.getBoard().getId().equals(board.getId())) {
-            throw new ValidationException("Element " + elementId + " does not belong to board " + board.getId());
+    /**
+     * Элемент доски вместе с самой доской, группой и медиа — одним запросом.
+     */
+    private BoardElement getElementOrThrow(UUID boardUuid, Long elementId) {
+        Optional<BoardElement> element = elementRepository.findByIdAndBoardUuid(elementId, boardUuid);
+        if (element.isEmpty()) {
+            getBoardOrThrow(boardUuid);
+            throw new NotFoundException("Element not found: " + elementId);
         }
-        return element;
+        return element.get();
     }
 
-    private String toJsonSafe(Object obj) {
-        if (obj == null) {
-            return null;
-        }
-        try {
-            return objectMapper.writeValueAsString(obj);
-        } catch (JsonProcessingException e) {
-            // логирование по-хорошему
-            return null;
-        }
+    private void saveHistory(Board board,
+                             long revision,
+                             Long elementId,
+                             BoardHistoryEvent.EventType eventType,
+                             BoardElementDto beforeState,
+                             BoardElementDto afterState) {
+        saveHistory(board, revision, elementId, eventType,
+                beforeState != null ? List.of(beforeState) : List.of(),
+                afterState != null ? List.of(afterState) : List.of());
     }
 
     private void saveHistory(Board board,
+                             long revision,
                              Long elementId,
                              BoardHistoryEvent.EventType eventType,
-                             Object beforeState,
-                             Object afterState) {
+                             List<BoardElementDto> beforeStates,
+                             List<BoardElementDto> afterStates) {
 
-        BoardHistoryEvent event = new BoardHistoryEvent();
-        event.setBoard(board);
-        event.setElementId(elementId);
-        event.setEventType(eventType);
-        event.setBeforeStateJson(toJsonSafe(beforeState));
-        event.setAfterStateJson(toJsonSafe(afterState));
-        event.setCreatedAt(Instant.now());
+        // дифф, сериализация и вставка — в BoardHistoryWriter, после коммита
+//        Long actorId = authUser.getCurrentUser().map(User::getId).orElse(null);
+        historyWriter.enqueueAfterCommit(new BoardHistoryWriter.PendingEvent(
+                board.getId(), revision, null, elementId, eventType, beforeStates, afterStates, Instant.now()));
+    }
 
-//        authUser.getCurrentUser().ifPresent(event::setActor);
+    private void publishUpserts(Board board, long revision, BoardHistoryEvent.EventType eventType,
+                                List<BoardElementDto> upserts) {
+        eventPublisher.publishEvent(BoardElementEvent.upserted(board.getUuid(), eventType, revision, upserts));
+    }
 
-        historyRepository.save(event);
+    /**
+     * Следующая ревизия доски. Блокирует строку доски до конца транзакции.
+     */
+    private long nextRevision(Board board) {
+        return revisionRepository.nextRevision(board.getId());
     }
 
-    private int calcNextZIndex(Board board) {
-        Integer maxZ = elementRepository.findMaxZIndexByBoard(board);
-        return (maxZ == null ? 0 : maxZ + 1);
+    /**
+     * Вызывается после nextRevision: строка доски уже заблокирована, и все конкурентные правки
+     * элемента закоммичены. Если элемент изменился после загрузки — перечитываем его.
+     */
+    private void refreshIfChanged(BoardElement element) {
+        long version = elementRepository.findVersionById(element.getId())
+                .orElseThrow(() -> new NotFoundException("Element not found: " + element.getId()));
+        if (version != element.getVersion()) {
+            entityManager.refresh(element);
+        }
     }
 
-    @Override
-    public List<BoardElementDto> getElementsByBoardUuid(UUID boardUuid) {
-        Board board = getBoardOrThrow(boardUuid);
-        List<BoardElement> elements = elementRepository.findAllByBoard(board);
-        return elements.stream()
-                .map(elementMapper::toDto)
-                .collect(Collectors.toList());
+    private void rejectConflict(BoardElement element, Long baseVersion, boolean geometry, boolean properties) {
+        String conflict = ElementMergePolicy.findConflict(element, baseVersion, geometry, properties);
+        if (conflict != null) {
+            throw new ConflictException(conflict, elementMapper.toDto(element));
+        }
     }
 
-    @Override
-    @Transactional
-    public BoardElementDto createElement(UUID boardUuid, BoardElementCreateRequest request) {
-        Board board = getBoardOrThrow(boardUuid);
+    /**
+     * points кистей и стрелок уходят в упакованные колонки, остальное — в JSON свойств.
+     */
+    private void applyProperties(BoardElement element, JsonNode properties) {
+        ElementPointsPacker.Packed packed = pointsPacker.pack(element.getType(), properties);
+        element.setPropertiesJson(packed.propertiesJson());
+        element.setPointsData(packed.points());
+        element.setPointsLod(packed.lod());
+    }
 
+    private BoardElement newElement(Board board, BoardElementCreateRequest request) {
         if (request.getWidth() == null || request.getWidth() <= 0 ||
                 request.getHeight() == null || request.getHeight() <= 0) {
             throw new ValidationException("Width and height must be positive");
@@ -129,13 +185,14 @@ public class BoardElementServiceImpl implements BoardElementService {
         element.setWidth(request.getWidth());
         element.setHeight(request.getHeight());
         element.setRotation(request.getRotation() != null ? request.getRotation() : 0.0);
-        element.setZIndex(request.getZIndex() != null ? request.getZIndex() : calcNextZIndex(board));
+        // zIndex хранится только для старых клиентов, порядок задаёт orderKey
+        element.setZIndex(request.getZIndex() != null ? request.getZIndex() : 0);
 
         // groupId -> ElementGroup
         if (request.getGroupId() != null) {
             UUID groupUuid = UUID.fromString(request.getGroupId());
             ElementGroup group = groupRepository
-                    .findByUuidAndBoardUuid(groupUuid, boardUuid)
+                    .findByUuidAndBoardUuid(groupUuid, board.getUuid())
                     .orElseThrow(() -> new ValidationException("Group not found: " + request.getGroupId()));
             element.setGroup(group);
         }
@@ -146,7 +203,7 @@ public class BoardElementServiceImpl implements BoardElementService {
         }
 
         if (request.getProperties() != null) {
-            element.setPropertiesJson(toJsonSafe(request.getProperties()));
+            applyProperties(element, request.getProperties());
         } else {
             element.setPropertiesJson("{}");
         }
@@ -157,29 +214,10 @@ public class BoardElementServiceImpl implements BoardElementService {
 //        });
         element.setCreatedAt(Instant.now());
         element.setUpdatedAt(Instant.now());
-
-        elementRepository.save(element);
-
-        BoardElementDto dto = elementMapper.toDto(element);
-        saveHistory(board, element.getId(), BoardHistoryEvent.EventType.ELEMENT_CREATED, null, dto);
-
-        return dto;
+        return element;
     }
 
-    @Override
-    @Transactional
-    public BoardElementDto updateElement(UUID boardUuid,
-                                         Long elementId,
-                                         BoardElementUpdateRequest request) {
-        Board board = getBoardOrThrow(boardUuid);
-        BoardElement element = getElementForBoardOrThrow(board, elementId);
-
-        if (element.isLockedEditing()) {
-            throw new ValidationException("Element editing is locked");
-        }
-
-        BoardElementDto beforeDto = elementMapper.toDto(element);
-
+    private void applyUpdate(BoardElement element, Board board, BoardElementUpdateRequest request) {
         if (request.getX() != null) element.setX(request.getX());
         if (request.getY() != null) element.setY(request.getY());
         if (request.getWidth() != null) element.setWidth(request.getWidth());
@@ -194,7 +232,7 @@ public class BoardElementServiceImpl implements BoardElementService {
             } else {
                 UUID groupUuid = UUID.fromString(request.getGroupId());
                 ElementGroup group = groupRepository
-                        .findByUuidAndBoardUuid(groupUuid, boardUuid)
+                        .findByUuidAndBoardUuid(groupUuid, board.getUuid())
                         .orElseThrow(() -> new ValidationException("Group not found: " + request.getGroupId()));
                 element.setGroup(group);
             }
@@ -212,16 +250,195 @@ public class BoardElementServiceImpl implements BoardElementService {
         }
 
         if (request.getProperties() != null) {
-            element.setPropertiesJson(toJsonSafe(request.getProperties()));
+            applyProperties(element, request.getProperties());
         }
 
 //        authUser.getCurrentUser().ifPresent(element::setUpdatedBy);
         element.setUpdatedAt(Instant.now());
+    }
+
+    @Override
+    public List<BoardElementDto> getElementsByBoardUuid(UUID boardUuid) {
+        Optional<List<BoardElementDto>> cached = elementCache.get(boardUuid);
+        if (cached.isPresent()) {
+            recordElementCount(cached.get(), "cache");
+            return cached.get();
+        }
+
+        BoardElementCache.LoadTicket ticket = elementCache.beginLoad(boardUuid);
+        Board board = getBoardOrThrow(boardUuid);
+        // холодная загрузка: снимок + хвост изменений, если снимок есть
+        List<BoardElementDto> dtos = snapshotService.loadCurrentState(board)
+                .orElseGet(() -> elementRepository.findAllByBoardOrderByOrderKeyAscIdAsc(board).stream()
+                        .map(elementMapper::toDto)
+                        .collect(Collectors.toList()));
+        elementCache.completeLoad(boardUuid, ticket, dtos);
+        recordElementCount(dtos, "db");
+        return dtos;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BoardElementDto> findElement(UUID boardUuid, Long elementId) {
+        return elementRepository.findByIdAndBoardUuid(elementId, boardUuid).map(elementMapper::toDto);
+    }
+
+    private void recordElementCount(List<BoardElementDto> elements, String source) {
+        DistributionSummary.builder("board.elements.count")
+                .description("Elements returned per board load")
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elements.size());
+    }
+
+    @Override
+    public StreamingResponseBody streamElements(UUID boardUuid) {
+        Board board = getBoardOrThrow(boardUuid);
+        ObjectWriter writer = objectMapper.writerFor(BoardElementDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        // активная доска уже в памяти — отдаём из кэша, он же учитывает ещё не сброшенную геометрию
+        Optional<List<BoardElementDto>> cached = elementCache.get(boardUuid);
+        if (cached.isPresent()) {
+            List<BoardElementDto> elements = cached.get();
+            return out -> {
+                try (JsonGenerator generator = ndjsonGenerator(out)) {
+                    for (BoardElementDto dto : elements) {
+                        writeNdjsonLine(writer, generator, dto);
+                    }
+                }
+            };
+        }
+
+        Long boardId = board.getId();
+        return out -> {
+            try (JsonGenerator generator = ndjsonGenerator(out)) {
+                // курсор PostgreSQL работает только внутри транзакции
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(BoardElementRowMapper.SELECT_BY_BOARD);
+                    ps.setFetchSize(STREAM_FETCH_SIZE);
+                    ps.setLong(1, boardId);
+                    return ps;
+                }, (RowCallbackHandler) rs -> {
+                    try {
+                        writeNdjsonLine(writer, generator, rowMapper.mapRow(rs, 0));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        };
+    }
+
+    private JsonGenerator ndjsonGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private static void writeNdjsonLine(ObjectWriter writer, JsonGenerator generator, BoardElementDto dto)
+            throws IOException {
+        writer.writeValue(generator, dto);
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public List<BoardElementDto> getElementsInViewport(UUID boardUuid,
+                                                      double minX, double minY,
+                                                      double maxX, double maxY,
+                                                      Double scale) {
+        if (!Double.isFinite(minX) || !Double.isFinite(minY) || !Double.isFinite(maxX) || !Double.isFinite(maxY)
+                || minX > maxX || minY > maxY) {
+            throw new ValidationException("Invalid viewport");
+        }
+        ElementBounds viewport = new ElementBounds(minX, minY, maxX, maxY);
+
+        Optional<List<BoardElementDto>> cached = elementCache.query(boardUuid, viewport);
+        if (cached.isEmpty()) {
+            // прогреваем кэш; если доска менялась во время загрузки — фильтруем загруженное напрямую
+            List<BoardElementDto> all = getElementsByBoardUuid(boardUuid);
+            cached = Optional.of(elementCache.query(boardUuid, viewport)
+                    .orElseGet(() -> all.stream()
+                            .filter(dto -> ElementBounds.of(dto).intersects(viewport))
+                            .toList()));
+        }
+        List<BoardElementDto> elements = cached.get();
+        if (scale == null) {
+            return elements;
+        }
+        // при мелком масштабе длинные штрихи отдаём упрощёнными
+        return elements.stream()
+                .map(dto -> pointsPacker.forScale(dto, scale))
+                .toList();
+    }
+
+    @Override
+    public BoardChangesDto getChangesSince(UUID boardUuid, long since) {
+        // ревизию берём до выборки изменений: всё, что закоммитится позже,
+        // попадёт и в этот ответ, и в следующий — повтор upsert безвреден
+        Board board = getBoardOrThrow(boardUuid);
+
+        BoardChangesDto changes = new BoardChangesDto();
+        changes.setRevision(board.getRevision());
+        changes.setUpserts(elementRepository.findAllByBoardAndRevisionGreaterThan(board, since).stream()
+                .map(elementMapper::toDto)
+                .toList());
+        changes.setDeletedIds(revisionRepository.findTombstonesSince(board.getId(), since));
+        return changes;
+    }
+
+    @Override
+    @Transactional
+    public BoardElementDto createElement(UUID boardUuid, BoardElementCreateRequest request) {
+        Board board = getBoardOrThrow(boardUuid);
+
+        BoardElement element = newElement(board, request);
+
+        long revision = nextRevision(board);
+        element.setRevision(revision);
+        element.setOrderKey(OrderKeys.top(revision, 0));
 
         elementRepository.save(element);
 
+        BoardElementDto dto = elementMapper.toDto(element);
+        saveHistory(board, revision, element.getId(), BoardHistoryEvent.EventType.ELEMENT_CREATED, null, dto);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_CREATED, List.of(dto));
+
+        return dto;
+    }
+
+    @Override
+    @Transactional
+    public BoardElementDto updateElement(UUID boardUuid,
+                                         Long elementId,
+                                         BoardElementUpdateRequest request) {
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
+
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
+
+        if (element.isLockedEditing()) {
+            throw new ValidationException("Element editing is locked");
+        }
+
+        boolean geometry = ElementMergePolicy.touchesGeometry(request);
+        boolean properties = ElementMergePolicy.touchesProperties(request);
+        rejectConflict(element, request.getBaseVersion(), geometry, properties);
+
+        BoardElementDto beforeDto = elementMapper.toDto(element);
+
+        applyUpdate(element, board, request);
+        ElementMergePolicy.markChanged(element, geometry, properties);
+        element.setRevision(revision);
+
+        // @Version растёт только при flush: DTO строим после него, иначе клиент получит старую версию
+        elementRepository.saveAndFlush(element);
+
         BoardElementDto afterDto = elementMapper.toDto(element);
-        saveHistory(board, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        saveHistory(board, revision, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_UPDATED, List.of(afterDto));
 
         return afterDto;
     }
@@ -231,12 +448,16 @@ public class BoardElementServiceImpl implements BoardElementService {
     public BoardElementDto transformElement(UUID boardUuid,
                                             Long elementId,
                                             ElementTransformRequest request) {
-        Board board = getBoardOrThrow(boardUuid);
-        BoardElement element = getElementForBoardOrThrow(board, elementId);
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
+
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
 
         if (element.isLockedPosition()) {
             throw new ValidationException("Element position is locked");
         }
+        rejectConflict(element, request.getBaseVersion(), true, false);
 
         BoardElementDto beforeDto = elementMapper.toDto(element);
 
@@ -245,25 +466,212 @@ public class BoardElementServiceImpl implements BoardElementService {
         element.setWidth(request.getWidth());
         element.setHeight(request.getHeight());
         element.setRotation(request.getRotation());
+        ElementMergePolicy.markChanged(element, true, false);
 
 //        authUser.getCurrentUser().ifPresent(element::setUpdatedBy);
         element.setUpdatedAt(Instant.now());
+        element.setRevision(revision);
 
-        elementRepository.save(element);
+        elementRepository.saveAndFlush(element);
 
         BoardElementDto afterDto = elementMapper.toDto(element);
-        saveHistory(board, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        saveHistory(board, revision, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_UPDATED, List.of(afterDto));
 
         return afterDto;
     }
 
+    @Override
+    public BoardElementDto beginTransformGesture(UUID boardUuid, Long elementId) {
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+
+        if (element.isLockedPosition()) {
+            throw new ValidationException("Element position is locked");
+        }
+
+        return elementMapper.toDto(element);
+    }
+
+    @Override
+    @Transactional
+    public BoardElementDto persistTransformGesture(UUID boardUuid,
+                                                   Long elementId,
+                                                   ElementTransformRequest request,
+                                                   BoardElementDto gestureStart) {
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
+
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
+
+        // блокировку и чужие правки геометрии могли внести, пока шёл жест
+        if (element.isLockedPosition()) {
+            throw new ValidationException("Element position is locked");
+        }
+        rejectConflict(element, request.getBaseVersion(), true, false);
+
+        // состояние до жеста — текущая строка с геометрией начала жеста: промежуточные кадры
+        // в историю не попадают, а чужие правки прочих полей за время жеста не откатываются при отмене
+        BoardElementDto beforeDto = elementMapper.toDto(element);
+        if (gestureStart != null) {
+            beforeDto.setX(gestureStart.getX());
+            beforeDto.setY(gestureStart.getY());
+            beforeDto.setWidth(gestureStart.getWidth());
+            beforeDto.setHeight(gestureStart.getHeight());
+            beforeDto.setRotation(gestureStart.getRotation());
+        }
+
+        element.setX(request.getX());
+        element.setY(request.getY());
+        element.setWidth(request.getWidth());
+        element.setHeight(request.getHeight());
+        element.setRotation(request.getRotation());
+        element.setUpdatedAt(Instant.now());
+
+        ElementMergePolicy.markChanged(element, true, false);
+        element.setRevision(revision);
+
+        elementRepository.saveAndFlush(element);
+
+        BoardElementDto afterDto = elementMapper.toDto(element);
+        if (gestureStart != null) {
+            saveHistory(board, revision, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+            publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_UPDATED, List.of(afterDto));
+        }
+
+        return afterDto;
+    }
+
+    @Override
+    @Transactional
+    public BoardChangesDto applyBatch(UUID boardUuid, ElementBatchRequest request) {
+        Board board = getBoardOrThrow(boardUuid);
+        List<ElementBatchOperation> operations = request.getOperations();
+
+        Set<Long> targetIds = new HashSet<>();
+        for (ElementBatchOperation op : operations) {
+            if (op.getType() == ElementBatchOperation.Type.CREATE) {
+                if (op.getCreate() == null) {
+                    throw new ValidationException("CREATE operation requires 'create'");
+                }
+                continue;
+            }
+            if (op.getElementId() == null) {
+                throw new ValidationException(op.getType() + " operation requires elementId");
+            }
+            if (!targetIds.add(op.getElementId())) {
+                throw new ValidationException("Element " + op.getElementId() + " appears more than once in batch");
+            }
+            if (op.getType() == ElementBatchOperation.Type.UPDATE && op.getUpdate() == null) {
+                throw new ValidationException("UPDATE operation requires 'update'");
+            }
+            if (op.getType() == ElementBatchOperation.Type.TRANSFORM && op.getTransform() == null) {
+                throw new ValidationException("TRANSFORM operation requires 'transform'");
+            }
+        }
+
+        // ревизию берём до чтения элементов: блокировка доски гарантирует, что читаем последние версии
+        long revision = nextRevision(board);
+
+        // все затронутые элементы доски вместе с группами и медиа — одним запросом
+        Map<Long, BoardElement> targets = elementRepository.findAllByBoardAndIdIn(board, targetIds).stream()
+                .collect(Collectors.toMap(BoardElement::getId, el -> el));
+        for (Long id : targetIds) {
+            if (!targets.containsKey(id)) {
+                throw new NotFoundException("Element not found: " + id);
+            }
+        }
+
+        List<BoardElementDto> before = new ArrayList<>();
+        List<BoardElementDto> after = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        List<BoardElement> created = new ArrayList<>();
+        List<BoardElement> updated = new ArrayList<>();
+        Map<Long, ElementTransformRequest> transforms = new HashMap<>();
+
+        for (ElementBatchOperation op : operations) {
+            BoardElement el = op.getElementId() != null ? targets.get(op.getElementId()) : null;
+            switch (op.getType()) {
+                case CREATE -> {
+                    BoardElement element = newElement(board, op.getCreate());
+                    element.setRevision(revision);
+                    element.setOrderKey(OrderKeys.top(revision, created.size()));
+                    created.add(element);
+                }
+                case UPDATE -> {
+                    if (el.isLockedEditing()) {
+                        throw new ValidationException("Element " + el.getId() + " editing is locked");
+                    }
+                    boolean geometry = ElementMergePolicy.touchesGeometry(op.getUpdate());
+                    boolean properties = ElementMergePolicy.touchesProperties(op.getUpdate());
+                    rejectConflict(el, op.getUpdate().getBaseVersion(), geometry, properties);
+                    before.add(elementMapper.toDto(el));
+                    applyUpdate(el, board, op.getUpdate());
+                    ElementMergePolicy.markChanged(el, geometry, properties);
+                    el.setRevision(revision);
+                    updated.add(el);
+                }
+                case TRANSFORM -> {
+                    if (el.isLockedPosition()) {
+                        throw new ValidationException("Element " + el.getId() + " position is locked");
+                    }
+                    // геометрию пишем JDBC-батчем мимо Hibernate (тем же запросом, что и отложенная запись), сущность не трогаем
+                    ElementTransformRequest t = op.getTransform();
+                    rejectConflict(el, t.getBaseVersion(), true, false);
+                    before.add(elementMapper.toDto(el));
+                    BoardElementDto afterDto = elementMapper.toDto(el);
+                    afterDto.setX(t.getX());
+                    afterDto.setY(t.getY());
+                    afterDto.setWidth(t.getWidth());
+                    afterDto.setHeight(t.getHeight());
+                    afterDto.setRotation(t.getRotation());
+                    afterDto.setRevision(revision);
+                    afterDto.setVersion(el.getVersion() + 1);
+                    after.add(afterDto);
+                    transforms.put(el.getId(), t);
+                }
+                case DELETE -> {
+                    before.add(elementMapper.toDto(el));
+                    deletedIds.add(el.getId());
+                }
+            }
+        }
+
+        if (!transforms.isEmpty()) {
+            geometryWriter.write(revision, transforms);
+        }
+        if (!deletedIds.isEmpty()) {
+            elementRepository.deleteAllByIdInBatch(deletedIds);
+            revisionRepository.saveTombstones(board.getId(), deletedIds, revision);
+        }
+        elementRepository.saveAll(created);
+        elementRepository.saveAll(updated);
+        // версии обновлённых строк проставляет flush — как и для TRANSFORM, в DTO уходит уже новая
+        elementRepository.flush();
+
+        created.forEach(el -> after.add(elementMapper.toDto(el)));
+        updated.forEach(el -> after.add(elementMapper.toDto(el)));
+
+        saveHistory(board, revision, null, BoardHistoryEvent.EventType.ELEMENT_BATCH, before, after);
+        eventPublisher.publishEvent(BoardElementEvent.batch(board.getUuid(), revision, after, deletedIds));
+
+        BoardChangesDto result = new BoardChangesDto();
+        result.setRevision(revision);
+        result.setUpserts(after);
+        result.setDeletedIds(deletedIds);
+        return result;
+    }
+
     @Override
     @Transactional
     public BoardElementDto updateLocks(UUID boardUuid,
                                        Long elementId,
                                        ElementLockRequest request) {
-        Board board = getBoardOrThrow(boardUuid);
-        BoardElement element = getElementForBoardOrThrow(board, elementId);
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
+
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
 
         BoardElementDto beforeDto = elementMapper.toDto(element);
 
@@ -276,11 +684,13 @@ public class BoardElementServiceImpl implements BoardElementService {
 
 //        authUser.getCurrentUser().ifPresent(element::setUpdatedBy);
         element.setUpdatedAt(Instant.now());
+        element.setRevision(revision);
 
-        elementRepository.save(element);
+        elementRepository.saveAndFlush(element);
 
         BoardElementDto afterDto = elementMapper.toDto(element);
-        saveHistory(board, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        saveHistory(board, revision, element.getId(), BoardHistoryEvent.EventType.ELEMENT_UPDATED, beforeDto, afterDto);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_UPDATED, List.of(afterDto));
 
         return afterDto;
     }
@@ -290,16 +700,12 @@ public class BoardElementServiceImpl implements BoardElementService {
     public GroupElementsResponse groupElements(UUID boardUuid,
                                                GroupElementsRequest request) {
         Board board = getBoardOrThrow(boardUuid);
+        long revision = nextRevision(board);
 
-        List<BoardElement> elements = elementRepository.findAllById(request.getElementIds());
+        List<BoardElement> elements = elementRepository.findAllByBoardAndIdIn(board, request.getElementIds());
         if (elements.size() != request.getElementIds().size()) {
             throw new ValidationException("Some elements not found");
         }
-        for (BoardElement el : elements) {
-            if (!el.getBoard().getId().equals(board.getId())) {
-                throw new ValidationException("Element " + el.getId() + " does not belong to this board");
-            }
-        }
 
         ElementGroup group = new ElementGroup();
         group.setBoard(board);
@@ -309,16 +715,21 @@ public class BoardElementServiceImpl implements BoardElementService {
 
         groupRepository.save(group);
 
-        for (BoardElement el : elements) {
-            el.setGroup(group);
-            el.setUpdatedAt(Instant.now());
-//            authUser.getCurrentUser().ifPresent(el::setUpdatedBy);
-        }
-        elementRepository.saveAll(elements);
+        List<BoardElementDto> before = elements.stream()
+                .map(elementMapper::toDto)
+                .toList();
 
+        Instant now = Instant.now();
         List<Long> ids = elements.stream().map(BoardElement::getId).toList();
+        elementRepository.assignGroup(ids, group, revision, now);
 
-        saveHistory(board, null, BoardHistoryEvent.EventType.ELEMENT_GROUPED, null, ids);
+        // запрос сам поднял version, а контекст очищен: для DTO перечитываем строки
+        List<BoardElementDto> after = elementRepository.findAllByBoardAndIdIn(board, ids).stream()
+                .map(elementMapper::toDto)
+                .toList();
+
+        saveHistory(board, revision, null, BoardHistoryEvent.EventType.ELEMENT_GROUPED, before, after);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_GROUPED, after);
 
         GroupElementsResponse response = new GroupElementsResponse();
         response.setGroupId(group.getUuid().toString());
@@ -331,24 +742,34 @@ public class BoardElementServiceImpl implements BoardElementService {
     public void ungroupElements(UUID boardUuid,
                                 UngroupElementsRequest request) {
         Board board = getBoardOrThrow(boardUuid);
+        long revision = nextRevision(board);
 
         UUID groupUuid = UUID.fromString(request.getGroupId());
         ElementGroup group = groupRepository.findByUuidAndBoardUuid(groupUuid, boardUuid)
                 .orElseThrow(() -> new ValidationException("Group not found: " + request.getGroupId()));
 
         List<BoardElement> elements = elementRepository.findAllByGroup(group);
-        List<Long> ids = elements.stream().map(BoardElement::getId).toList();
 
-        for (BoardElement el : elements) {
-            el.setGroup(null);
-            el.setUpdatedAt(Instant.now());
-//            authUser.getCurrentUser().ifPresent(el::setUpdatedBy);
+        List<BoardElementDto> before = elements.stream()
+                .map(elementMapper::toDto)
+                .toList();
+
+        List<Long> ids = elements.stream().map(BoardElement::getId).toList();
+        if (!ids.isEmpty()) {
+            elementRepository.assignGroup(ids, null, revision, Instant.now());
         }
-        elementRepository.saveAll(elements);
 
         groupRepository.delete(group);
 
-        saveHistory(board, null, BoardHistoryEvent.EventType.ELEMENT_UNGROUPED, ids, null);
+        // как и в groupElements: DTO строим по перечитанным строкам с новой version
+        List<BoardElementDto> after = ids.isEmpty()
+                ? List.of()
+                : elementRepository.findAllByBoardAndIdIn(board, ids).stream()
+                        .map(elementMapper::toDto)
+                        .toList();
+
+        saveHistory(board, revision, null, BoardHistoryEvent.EventType.ELEMENT_UNGROUPED, before, after);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_UNGROUPED, after);
     }
 
     @Override
@@ -356,50 +777,145 @@ public class BoardElementServiceImpl implements BoardElementService {
     public void reorderElements(UUID boardUuid,
                                 ReorderElementsRequest request) {
         Board board = getBoardOrThrow(boardUuid);
+        // ревизию берём до чтения элементов, как в applyBatch
+        long revision = nextRevision(board);
 
         Map<Long, Integer> idToZIndex = request.getOrders().stream()
                 .collect(Collectors.toMap(ElementOrderDto::getId, ElementOrderDto::getZIndex));
 
-        List<BoardElement> elements = elementRepository.findAllById(idToZIndex.keySet());
+        List<BoardElement> elements = elementRepository.findAllByBoardAndIdIn(board, idToZIndex.keySet());
+        if (elements.size() != idToZIndex.size()) {
+            throw new ValidationException("Some elements not found");
+        }
 
-        for (BoardElement el : elements) {
-            if (!el.getBoard().getId().equals(board.getId())) {
-                throw new ValidationException("Element " + el.getId() + " does not belong to this board");
-            }
+        // элементы переставляются между собственными ключами порядка — остальные строки не трогаются
+        List<String> slots;
+        if (elements.size() == 1) {
+            BoardElement single = elements.get(0);
+            slots = List.of(singleElementSlot(board, single, idToZIndex.get(single.getId()), revision));
+        } else {
+            slots = elements.stream()
+                    .map(BoardElement::getOrderKey)
+                    .sorted()
+                    .toList();
         }
+        List<BoardElement> reordered = elements.stream()
+                .sorted(Comparator.comparing((BoardElement el) -> idToZIndex.get(el.getId()))
+                        .thenComparing(BoardElement::getOrderKey))
+                .toList();
 
         List<BoardElementDto> before = elements.stream()
                 .map(elementMapper::toDto)
                 .toList();
 
-        for (BoardElement el : elements) {
-            Integer newZ = idToZIndex.get(el.getId());
-            if (newZ != null) {
-                el.setZIndex(newZ);
-                el.setUpdatedAt(Instant.now());
-//                authUser.getCurrentUser().ifPresent(el::setUpdatedBy);
-            }
+        for (int i = 0; i < reordered.size(); i++) {
+            BoardElement el = reordered.get(i);
+            el.setZIndex(idToZIndex.get(el.getId()));
+            el.setOrderKey(slots.get(i));
+            el.setRevision(revision);
+            el.setUpdatedAt(Instant.now());
+//            authUser.getCurrentUser().ifPresent(el::setUpdatedBy);
         }
         elementRepository.saveAll(elements);
+        elementRepository.flush();
 
         List<BoardElementDto> after = elements.stream()
                 .map(elementMapper::toDto)
                 .toList();
 
-        saveHistory(board, null, BoardHistoryEvent.EventType.ELEMENT_REORDERED, before, after);
+        saveHistory(board, revision, null, BoardHistoryEvent.EventType.ELEMENT_REORDERED, before, after);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_REORDERED, after);
+    }
+
+    /**
+     * Один элемент не с кем переставлять: zIndex старого клиента выше всех остальных — наверх,
+     * ниже всех — вниз. Промежуточное значение через ключи порядка не выразить.
+     */
+    private String singleElementSlot(Board board, BoardElement element, int zIndex, long revision) {
+        Integer max = elementRepository.findMaxZIndexExcept(board, element.getId());
+        if (max == null) {
+            return element.getOrderKey();
+        }
+        if (zIndex > max) {
+            return OrderKeys.top(revision, 0);
+        }
+        if (zIndex < elementRepository.findMinZIndexExcept(board, element.getId())) {
+            return OrderKeys.between(null, elementRepository.findMinOrderKeyByBoard(board));
+        }
+        throw new ValidationException(
+                "Single element zIndex must be above or below all others; use PATCH .../elements/{id}/order");
+    }
+
+    @Override
+    @Transactional
+    public BoardElementDto moveElement(UUID boardUuid,
+                                       Long elementId,
+                                       ElementMoveRequest request) {
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
+
+        BoardElement target = null;
+        if (request.getPosition() == ElementMoveRequest.Position.ABOVE
+                || request.getPosition() == ElementMoveRequest.Position.BELOW) {
+            if (request.getTargetId() == null) {
+                throw new ValidationException("targetId is required for " + request.getPosition());
+            }
+            if (request.getTargetId().equals(elementId)) {
+                throw new ValidationException("Element cannot be moved relative to itself");
+            }
+            target = getElementOrThrow(boardUuid, request.getTargetId());
+        }
+
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
+        if (target != null) {
+            refreshIfChanged(target);
+        }
+        BoardElementDto before = elementMapper.toDto(element);
+
+        // читаем не больше одного соседнего ключа, пишем одну строку
+        String orderKey = switch (request.getPosition()) {
+            case FRONT -> OrderKeys.top(revision, 0);
+            case BACK -> OrderKeys.between(null, elementRepository.findMinOrderKeyByBoard(board));
+            case ABOVE -> {
+                String upper = elementRepository.findOrderKeyAbove(board, target.getOrderKey());
+                // над самым верхним — тот же ключ, что и для FRONT
+                yield upper != null
+                        ? OrderKeys.between(target.getOrderKey(), upper)
+                        : OrderKeys.top(revision, 0);
+            }
+            case BELOW -> OrderKeys.between(
+                    elementRepository.findOrderKeyBelow(board, target.getOrderKey()),
+                    target.getOrderKey());
+        };
+
+        element.setOrderKey(orderKey);
+        element.setRevision(revision);
+        element.setUpdatedAt(Instant.now());
+        elementRepository.saveAndFlush(element);
+
+        BoardElementDto after = elementMapper.toDto(element);
+        saveHistory(board, revision, elementId, BoardHistoryEvent.EventType.ELEMENT_REORDERED, before, after);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_REORDERED, List.of(after));
+
+        return after;
     }
 
     @Override
     @Transactional
     public void deleteElement(UUID boardUuid, Long elementId) {
-        Board board = getBoardOrThrow(boardUuid);
-        BoardElement element = getElementForBoardOrThrow(board, elementId);
+        BoardElement element = getElementOrThrow(boardUuid, elementId);
+        Board board = element.getBoard();
 
-        BoardElementDto beforeDto = elementMapper.toDto(element);
+        long revision = nextRevision(board);
+        refreshIfChanged(element);
 
+        BoardElementDto beforeDto = elementMapper.toDto(element);
         elementRepository.delete(element);
 
-        saveHistory(board, elementId, BoardHistoryEvent.EventType.ELEMENT_DELETED, beforeDto, null);
+        saveHistory(board, revision, elementId, BoardHistoryEvent.EventType.ELEMENT_DELETED, beforeDto, null);
+        revisionRepository.saveTombstones(board.getId(), List.of(elementId), revision);
+        eventPublisher.publishEvent(BoardElementEvent.deleted(board.getUuid(), revision, List.of(elementId)));
     }
 
     @Override
@@ -407,20 +923,20 @@ public class BoardElementServiceImpl implements BoardElementService {
     public CopyElementsResponse copyElements(UUID boardUuid,
                                              CopyElementsRequest request) {
         Board board = getBoardOrThrow(boardUuid);
+        long revision = nextRevision(board);
 
-        List<BoardElement> originals = elementRepository.findAllById(request.getElementIds());
+        List<BoardElement> originals = new ArrayList<>(
+                elementRepository.findAllByBoardAndIdIn(board, request.getElementIds()));
         if (originals.size() != request.getElementIds().size()) {
             throw new ValidationException("Some elements not found");
         }
+        // копии ложатся поверх доски в том же взаимном порядке, что и оригиналы
+        originals.sort(Comparator.comparing(BoardElement::getOrderKey));
 
         List<BoardElement> copies = new ArrayList<>();
         List<CopyElementsResponse.ElementCopyInfo> copyInfos = new ArrayList<>();
 
         for (BoardElement original : originals) {
-            if (!original.getBoard().getId().equals(board.getId())) {
-                throw new ValidationException("Element " + original.getId() + " does not belong to this board");
-            }
-
             BoardElement copy = new BoardElement();
             copy.setBoard(board);
             copy.setType(original.getType());
@@ -430,12 +946,16 @@ public class BoardElementServiceImpl implements BoardElementService {
             copy.setHeight(original.getHeight());
             copy.setRotation(original.getRotation());
             copy.setZIndex(original.getZIndex() + 1);
+            copy.setOrderKey(OrderKeys.top(revision, copies.size()));
 
             copy.setGroup(original.getGroup());
             copy.setLockedPosition(false);
             copy.setLockedEditing(false);
             copy.setMedia(original.getMedia());
             copy.setPropertiesJson(original.getPropertiesJson());
+            copy.setPointsData(original.getPointsData());
+            copy.setPointsLod(original.getPointsLod());
+            copy.setRevision(revision);
 
 //            authUser.getCurrentUser().ifPresent(user -> {
 //                copy.setCreatedBy(user);
@@ -458,8 +978,12 @@ public class BoardElementServiceImpl implements BoardElementService {
             copyInfos.add(info);
         }
 
-        saveHistory(board, null, BoardHistoryEvent.EventType.ELEMENT_COPIED,
-                request.getElementIds(), copyInfos);
+        List<BoardElementDto> copyDtos = copies.stream()
+                .map(elementMapper::toDto)
+                .toList();
+
+        saveHistory(board, revision, null, BoardHistoryEvent.EventType.ELEMENT_COPIED, List.of(), copyDtos);
+        publishUpserts(board, revision, BoardHistoryEvent.EventType.ELEMENT_COPIED, copyDtos);
 
         CopyElementsResponse response = new CopyElementsResponse();
         response.setCopies(copyInfos);
@@ -0,0 +1,40 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.BoardEventBatch;
+import com.example.demo.service.BoardElementCrdt.Operation;
+
+import java.util.List;
+
+/**
+ * Шина событий досок между узлами: изменения, закоммиченные на одном узле,
+ * доходят до подписчиков WebSocket/SSE и кэшей на остальных.
+ * Реализация выбирается свойством board.event-bus.type: memory (один узел, тесты) или postgres.
+ */
+public interface BoardEventBus {
+
+    /**
+     * Отправляет событие этого узла остальным; реализация может копить события доски в пачки.
+     */
+    default void publish(BoardElementEvent event) {
+        publish(event, List.of());
+    }
+
+    /**
+     * То же вместе с CRDT-операциями события (см. BoardCrdtReplicas); операции едут в той же пачке.
+     */
+    void publish(BoardElementEvent event, List<Operation> operations);
+
+    void subscribe(Subscriber subscriber);
+
+    interface Subscriber {
+
+        void onBatch(BoardEventBatch batch);
+
+        /**
+         * Связь с другими узлами прерывалась: часть пачек могла потеряться.
+         */
+        default void onGap() {
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardChangesDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.BoardEventBatch;
+import com.example.demo.exception.NotFoundException;
+import com.example.demo.service.BoardElementCrdt.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Связывает события элементов этого узла с BoardEventBus.
+ * Свои события после коммита уходят в шину; чужие публикуются здесь как обычные BoardElementEvent
+ * с флагом remote, поэтому рассылка подписчикам и кэш обрабатывают их так же, как свои.
+ * Если включены CRDT-реплики, релей ведёт и их: операции своих изменений едут в той же пачке,
+ * чужие применяются к реплике при получении.
+ * <p>
+ * fromRevision пачки — ревизия предыдущей пачки того же узла по доске. Если она больше последней
+ * полученной от этого узла, пачки между ними потерялись: изменения дочитываются из БД
+ * (getChangesSince), а из самой пачки публикуются только кадры перемещения.
+ */
+@Slf4j
+@Component
+public class BoardEventRelay implements BoardEventBus.Subscriber {
+
+    private final BoardEventBus eventBus;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BoardElementService boardElementService;
+    private final BoardElementCache elementCache;
+    private final BoardCrdtReplicas crdtReplicas;
+    private final String nodeId;
+
+    /** Последняя ревизия, полученная от узла по доске (ключ — узел и доска). */
+    private final Map<String, Long> lastReceived;
+
+    public BoardEventRelay(BoardEventBus eventBus,
+                           ApplicationEventPublisher eventPublisher,
+                           BoardElementService boardElementService,
+                           BoardElementCache elementCache,
+                           ObjectProvider<BoardCrdtReplicas> crdtReplicas,
+                           HybridLogicalClock clock,
+                           @Value("${board.event-bus.max-boards:10000}") int maxBoards) {
+        this.eventBus = eventBus;
+        this.eventPublisher = eventPublisher;
+        this.boardElementService = boardElementService;
+        this.elementCache = elementCache;
+        this.crdtReplicas = crdtReplicas.getIfAvailable();
+        this.nodeId = clock.nodeId();
+        this.lastReceived = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxBoards;
+            }
+        };
+        eventBus.subscribe(this);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onElementEvent(BoardElementEvent event) {
+        if (!event.isRemote()) {
+            eventBus.publish(event, recordOperations(event));
+        }
+    }
+
+    @Override
+    public void onBatch(BoardEventBatch batch) {
+        if (nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+        Long missedSince = checkContinuity(batch);
+        if (batch.isTruncated()) {
+            Long since = missedSince != null ? missedSince : batch.getFromRevision();
+            if (since != null) {
+                publishChangesSince(batch.getBoardUuid(), since);
+            }
+            return;
+        }
+        if (missedSince != null) {
+            log.info("Board {} missed events from node {} after revision {}, reloading changes",
+                    batch.getBoardUuid(), batch.getOrigin(), missedSince);
+            publishChangesSince(batch.getBoardUuid(), missedSince);
+            // закоммиченное уже дочитано из БД; кадры в БД не попадают — их рассылаем как есть
+            for (BoardElementEvent event : batch.getEvents()) {
+                if (event.getRevision() == null) {
+                    event.setRemote(true);
+                    eventPublisher.publishEvent(event);
+                }
+            }
+            return;
+        }
+        if (crdtReplicas != null && !batch.getOperations().isEmpty()) {
+            crdtReplicas.applyRemote(batch.getBoardUuid(), batch.getOperations());
+        }
+        for (BoardElementEvent event : batch.getEvents()) {
+            if (batch.getOperations().isEmpty()) {
+                // отправитель без CRDT-реплик: операции выводятся из события по его ревизии так же, как у него
+                recordOperations(event);
+            }
+            event.setRemote(true);
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    @Override
+    public void onGap() {
+        // подписчики WebSocket дочитают пропущенное по ревизии, кэш и реплики проще сбросить
+        elementCache.evictAll();
+        if (crdtReplicas != null) {
+            crdtReplicas.evictAll();
+        }
+        synchronized (lastReceived) {
+            lastReceived.clear();
+        }
+    }
+
+    /**
+     * Запоминает ревизию пачки; возвращает ревизию, после которой пачки этого узла потерялись, или null.
+     */
+    private Long checkContinuity(BoardEventBatch batch) {
+        if (batch.getRevision() == null) {
+            return null;
+        }
+        String key = batch.getOrigin() + "/" + batch.getBoardUuid();
+        synchronized (lastReceived) {
+            Long last = lastReceived.get(key);
+            lastReceived.put(key, last != null ? Math.max(last, batch.getRevision()) : batch.getRevision());
+            if (last != null && batch.getFromRevision() != null && batch.getFromRevision() > last) {
+                return last;
+            }
+            return null;
+        }
+    }
+
+    private List<Operation> recordOperations(BoardElementEvent event) {
+        if (crdtReplicas == null) {
+            return List.of();
+        }
+        try {
+            return crdtReplicas.record(event);
+        } catch (RuntimeException e) {
+            // реплика восстановится из БД, а дельта клиентам уйдёт и без операций
+            log.warn("Failed to record CRDT operations for board {}: {}", event.getBoardUuid(), e.getMessage());
+            crdtReplicas.evict(event.getBoardUuid());
+            return List.of();
+        }
+    }
+
+    private void publishChangesSince(UUID boardUuid, long since) {
+        BoardChangesDto changes;
+        try {
+            changes = boardElementService.getChangesSince(boardUuid, since);
+        } catch (NotFoundException e) {
+            elementCache.evict(boardUuid);
+            if (crdtReplicas != null) {
+                crdtReplicas.evict(boardUuid);
+            }
+            return;
+        }
+        BoardElementEvent event = BoardElementEvent.batch(
+                boardUuid, changes.getRevision(), changes.getUpserts(), changes.getDeletedIds());
+        recordOperations(event);
+        event.setRemote(true);
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import com.example.demo.mapper.JsonMergePatch;
+import com.example.demo.model.BoardHistoryEvent;
+import com.example.demo.repository.BoardHistoryMaintenanceRepository;
+import com.example.demo.repository.BoardHistoryMaintenanceRepository.HistoryRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сжатие истории: подряд идущие ELEMENT_UPDATED одного элемента
+ * (без других событий, затрагивающих этот элемент, между ними) склеиваются в последнее из них.
+ * Прямой патч — композиция прямых патчей серии, обратный — композиция обратных в обратном порядке,
+ * поэтому восстановление состояния после серии не меняется; промежуточные состояния пропадают.
+ * Трогаются только события старше min-age, чтобы свежая история оставалась подробной.
+ * Нечитаемое событие обрывает все открытые серии.
+ */
+@Slf4j
+@Component
+public class BoardHistoryCompactor {
+
+    private static final String ELEMENT_UPDATED = BoardHistoryEvent.EventType.ELEMENT_UPDATED.name();
+
+    private final BoardHistoryMaintenanceRepository maintenanceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration minAge;
+    private final int boardsPerRun;
+    private final int eventsPerBoard;
+
+    private final Counter eventsMerged;
+
+    public BoardHistoryCompactor(BoardHistoryMaintenanceRepository maintenanceRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${board.history.compaction.min-age:1h}") Duration minAge,
+                                 @Value("${board.history.compaction.boards-per-run:50}") int boardsPerRun,
+                                 @Value("${board.history.compaction.events-per-board:5000}") int eventsPerBoard) {
+        this.maintenanceRepository = maintenanceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.minAge = minAge;
+        this.boardsPerRun = boardsPerRun;
+        this.eventsPerBoard = eventsPerBoard;
+
+        this.eventsMerged = Counter.builder("board.history.compaction.events.merged")
+                .description("События истории, поглощённые сжатием")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${board.history.compaction.interval-ms:300000}",
+            initialDelayString = "${board.history.compaction.initial-delay-ms:120000}")
+    public void compactDueBoards() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(minAge));
+        for (Long boardId : maintenanceRepository.findBoardsDueForCompaction(boardsPerRun)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> compactBoard(boardId, cutoff));
+            } catch (RuntimeException e) {
+                log.warn("Failed to compact history of board {}: {}", boardId, e.getMessage());
+            }
+        }
+    }
+
+    void compactBoard(long boardId, Timestamp cutoff) {
+        long fromRevision = maintenanceRepository.findCompactedRevision(boardId);
+        Optional<Long> toRevision = maintenanceRepository.findLastRevisionCreatedBefore(boardId, fromRevision, cutoff);
+        if (toRevision.isEmpty()) {
+            // ничего достаточно старого: доска уходит в конец очереди
+            maintenanceRepository.markCompacted(boardId, fromRevision);
+            return;
+        }
+
+        List<HistoryRow> events = maintenanceRepository.findPatchEvents(
+                boardId, fromRevision, toRevision.get(), eventsPerBoard + 1);
+        long compactedThrough = toRevision.get();
+        if (events.size() > eventsPerBoard) {
+            // не разрезаем ревизию: события последней ревизии дождутся следующего прохода
+            long lastRevision = events.get(eventsPerBoard).revision();
+            events.removeIf(row -> row.revision() >= lastRevision);
+            compactedThrough = lastRevision - 1;
+            if (events.isEmpty()) {
+                return;
+            }
+        }
+
+        Map<Long, List<HistoryRow>> runs = new HashMap<>();
+        List<List<HistoryRow>> closed = new ArrayList<>();
+        for (HistoryRow row : events) {
+            JsonNode after = parse(row.afterStateJson());
+            if (after == null || !after.isObject()) {
+                // какие элементы затронуло событие, не понять: ни одна серия его не перепрыгивает
+                closed.addAll(runs.values());
+                runs.clear();
+                continue;
+            }
+            if (isSingleElementUpdate(row, after)) {
+                runs.computeIfAbsent(row.elementId(), id -> new ArrayList<>()).add(row);
+                continue;
+            }
+            // любое другое событие, затронувшее элемент, обрывает его серию
+            Iterator<String> ids = after.fieldNames();
+            while (ids.hasNext()) {
+                List<HistoryRow> run = runs.remove(Long.valueOf(ids.next()));
+                if (run != null) {
+                    closed.add(run);
+                }
+            }
+        }
+        closed.addAll(runs.values());
+
+        for (List<HistoryRow> run : closed) {
+            if (run.size() > 1) {
+                merge(run);
+            }
+        }
+        maintenanceRepository.markCompacted(boardId, compactedThrough);
+    }
+
+    private static boolean isSingleElementUpdate(HistoryRow row, JsonNode after) {
+        return ELEMENT_UPDATED.equals(row.eventType())
+                && row.elementId() != null
+                && after.size() == 1
+                && after.has(row.elementId().toString());
+    }
+
+    /**
+     * Склеивает серию кусками: на событии, которое merge patch не может склеить с предыдущими
+     * (см. {@link JsonMergePatch#canCompose}), начинается новый кусок.
+     */
+    private void merge(List<HistoryRow> run) {
+        List<HistoryRow> segment = new ArrayList<>();
+        JsonNode forward = null;
+        JsonNode reverse = null;
+        for (HistoryRow row : run) {
+            JsonNode after = parse(row.afterStateJson());
+            JsonNode before = parse(row.beforeStateJson());
+            if (!segment.isEmpty()
+                    && !(JsonMergePatch.canCompose(forward, after) && JsonMergePatch.canCompose(before, reverse))) {
+                mergeSegment(segment, forward, reverse);
+                segment = new ArrayList<>();
+                forward = null;
+                reverse = null;
+            }
+            forward = JsonMergePatch.compose(forward, after);
+            reverse = JsonMergePatch.compose(before, reverse);
+            segment.add(row);
+        }
+        mergeSegment(segment, forward, reverse);
+    }
+
+    private void mergeSegment(List<HistoryRow> segment, JsonNode forward, JsonNode reverse) {
+        if (segment.size() < 2) {
+            return;
+        }
+        HistoryRow last = segment.get(segment.size() - 1);
+        maintenanceRepository.updateEventStates(last, reverse.toString(), forward.toString());
+        maintenanceRepository.deleteEvents(segment.subList(0, segment.size() - 1));
+        eventsMerged.increment(segment.size() - 1);
+    }
+
+    private JsonNode parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BoardHistoryMaintenanceRepository;
+import com.example.demo.repository.BoardHistoryMaintenanceRepository.BoardRevision;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Секции и срок хранения истории досок.
+ * <ul>
+ *     <li>заранее создаёт месячные секции board_history_events, чтобы вставка не уходила в секцию по умолчанию;
+ *     если строки месяца всё же туда попали, они переносятся в созданную секцию;</li>
+ *     <li>постоянные доски: секции старше срока хранения удаляются целиком (DROP, без построчного DELETE);</li>
+ *     <li>временные доски: события старше своего, более короткого срока удаляются пачками.</li>
+ * </ul>
+ * Перед удалением событий у доски должен быть снимок не старше последнего удаляемого события:
+ * с него начинается восстановление состояния, а history_floor_revision отсекает более ранние ревизии.
+ */
+@Slf4j
+@Component
+public class BoardHistoryRetentionJob {
+
+    private final BoardHistoryMaintenanceRepository maintenanceRepository;
+    private final BoardSnapshotService snapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration permanentRetention;
+    private final Duration temporaryRetention;
+    private final int partitionsAhead;
+    private final int boardsPerRun;
+    private final int chunkSize;
+
+    private final Counter partitionsDropped;
+    private final Counter eventsDeleted;
+
+    public BoardHistoryRetentionJob(BoardHistoryMaintenanceRepository maintenanceRepository,
+                                    BoardSnapshotService snapshotService,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${board.history.retention.permanent:365d}") Duration permanentRetention,
+                                    @Value("${board.history.retention.temporary:3d}") Duration temporaryRetention,
+                                    @Value("${board.history.partitions-ahead:2}") int partitionsAhead,
+                                    @Value("${board.history.retention.boards-per-run:200}") int boardsPerRun,
+                                    @Value("${board.history.retention.chunk-size:5000}") int chunkSize) {
+        this.maintenanceRepository = maintenanceRepository;
+        this.snapshotService = snapshotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.permanentRetention = permanentRetention;
+        this.temporaryRetention = temporaryRetention;
+        this.partitionsAhead = partitionsAhead;
+        this.boardsPerRun = boardsPerRun;
+        this.chunkSize = chunkSize;
+
+        this.partitionsDropped = Counter.builder("board.history.retention.partitions.dropped")
+                .register(meterRegistry);
+        this.eventsDeleted = Counter.builder("board.history.retention.events.deleted")
+                .description("События временных досок, удалённые по сроку хранения")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${board.history.retention.cron:0 30 3 * * *}")
+    public void run() {
+        ensurePartitions();
+        dropExpiredPartitions();
+        pruneTemporaryBoards();
+    }
+
+    void ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        List<YearMonth> existing = maintenanceRepository.findPartitions();
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (existing.contains(month)) {
+                continue;
+            }
+            try {
+                Integer moved = transactionTemplate.execute(status -> maintenanceRepository.createPartition(month));
+                if (moved != null && moved > 0) {
+                    log.warn("Created history partition for {}, moved {} events from the default partition",
+                            month, moved);
+                } else {
+                    log.info("Created history partition for {}", month);
+                }
+            } catch (RuntimeException e) {
+                // пока секции нет, события месяца копятся в секции по умолчанию и не удаляются по сроку
+                log.error("Failed to create history partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+
+    void dropExpiredPartitions() {
+        LocalDateTime cutoff = LocalDateTime.ofInstant(Instant.now().minus(permanentRetention), ZoneId.systemDefault());
+        for (YearMonth month : maintenanceRepository.findPartitions()) {
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                break;
+            }
+            try {
+                for (BoardRevision board : maintenanceRepository.findBoardRevisionsInPartition(month)) {
+                    coverWithSnapshot(board.boardId(), board.revision());
+                }
+                transactionTemplate.executeWithoutResult(status -> maintenanceRepository.dropPartition(month));
+                partitionsDropped.increment();
+                log.info("Dropped history partition for {}", month);
+            } catch (RuntimeException e) {
+                log.warn("Failed to drop history partition for {}: {}", month, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    void pruneTemporaryBoards() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(temporaryRetention));
+        for (Long boardId : maintenanceRepository.findTemporaryBoardsCreatedBefore(cutoff, boardsPerRun)) {
+            try {
+                Optional<Long> lastRevision = maintenanceRepository.findLastRevisionBefore(boardId, cutoff);
+                if (lastRevision.isEmpty()) {
+                    continue;
+                }
+                coverWithSnapshot(boardId, lastRevision.get());
+                while (true) {
+                    Integer deleted = transactionTemplate.execute(status ->
+                            maintenanceRepository.deleteEventsUpTo(boardId, lastRevision.get(), chunkSize));
+                    if (deleted == null || deleted == 0) {
+                        break;
+                    }
+                    eventsDeleted.increment(deleted);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to prune history of board {}: {}", boardId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Гарантирует снимок доски на ревизии не ниже revision и поднимает до него history_floor_revision.
+     */
+    private void coverWithSnapshot(long boardId, long revision) {
+        long snapshotRevision = maintenanceRepository.findSnapshotRevisionAtOrAfter(boardId, revision)
+                .orElseGet(() -> snapshotService.createSnapshot(boardId));
+        maintenanceRepository.raiseFloorRevision(boardId, snapshotRevision);
+    }
+}
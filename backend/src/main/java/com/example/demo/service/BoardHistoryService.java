@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BoardHistoryService {
+
+    /**
+     * Состояние элемента сразу после события истории eventId.
+     */
+    BoardElementDto getElementStateAt(UUID boardUuid, Long elementId, Long eventId);
+
+    /**
+     * Все элементы доски на ревизии revision: ближайший снимок не новее revision плюс события после него.
+     * Если снимка нет, а у доски есть события без ревизии, состояние не восстановить — 409.
+     */
+    List<BoardElementDto> getBoardStateAt(UUID boardUuid, long revision);
+
+    /**
+     * Снимает текущее состояние доски; возвращает ревизию снимка.
+     */
+    long createSnapshot(UUID boardUuid);
+}
@@ -0,0 +1,197 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.exception.NotFoundException;
+import com.example.demo.mapper.JsonMergePatch;
+import com.example.demo.model.Board;
+import com.example.demo.model.BoardHistoryEvent;
+import com.example.demo.repository.BoardHistoryEventRepository;
+import com.example.demo.repository.BoardRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class BoardHistoryServiceImpl implements BoardHistoryService {
+
+    private final BoardRepository boardRepository;
+    private final BoardHistoryEventRepository historyRepository;
+    private final ObjectMapper objectMapper;
+    private final BoardSnapshotService snapshotService;
+
+    private Board getBoardOrThrow(UUID boardUuid) {
+        return boardRepository.findByUuid(boardUuid)
+                .orElseThrow(() -> new NotFoundException("Board not found: " + boardUuid));
+    }
+
+    @Override
+    public BoardElementDto getElementStateAt(UUID boardUuid, Long elementId, Long eventId) {
+        Board board = getBoardOrThrow(boardUuid);
+
+        BoardHistoryEvent target = historyRepository.findById(eventId)
+                .filter(event -> event.getBoard().getId().equals(board.getId()))
+                .orElseThrow(() -> new NotFoundException("History event not found: " + eventId));
+
+        JsonNode state = null;
+        List<BoardHistoryEvent> timeline;
+        if (target.getRevision() == null) {
+            timeline = historyRepository.findLegacyElementTimeline(board.getId(), elementId, eventId);
+        } else {
+            // начинаем со снимка: события до него могли быть удалены по сроку хранения
+            Optional<BoardSnapshotService.Snapshot> snapshot = findBaseSnapshot(board, target.getRevision());
+            if (snapshot.isPresent()) {
+                state = snapshot.get().elements().stream()
+                        .filter(dto -> elementId.equals(dto.getId()))
+                        .findFirst()
+                        .map(this::toTree)
+                        .orElse(null);
+                timeline = historyRepository.findElementTimelineSince(
+                        board.getId(), elementId, snapshot.get().revision(), target.getRevision());
+            } else {
+                timeline = historyRepository.findElementTimeline(board.getId(), elementId, target.getRevision());
+            }
+        }
+
+        for (BoardHistoryEvent event : timeline) {
+            JsonNode after = parse(event.getAfterStateJson());
+
+            if (event.getStateFormat() == BoardHistoryEvent.StateFormat.MERGE_PATCH) {
+                JsonNode patch = after == null ? null : after.get(elementId.toString());
+                if (patch != null) {
+                    state = patch.isNull() ? null : JsonMergePatch.apply(state, patch);
+                }
+            } else {
+                Optional<JsonNode> snapshot = legacySnapshot(event, after, elementId);
+                if (snapshot.isPresent()) {
+                    state = snapshot.get().isNull() ? null : snapshot.get();
+                }
+            }
+        }
+
+        if (state == null) {
+            throw new NotFoundException("Element " + elementId + " did not exist at event " + eventId);
+        }
+        try {
+            return objectMapper.treeToValue(state, BoardElementDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot rebuild element " + elementId, e);
+        }
+    }
+
+    @Override
+    public List<BoardElementDto> getBoardStateAt(UUID boardUuid, long revision) {
+        Board board = getBoardOrThrow(boardUuid);
+        if (revision < 0 || revision > board.getRevision()) {
+            throw new ValidationException("Revision out of range: " + revision);
+        }
+
+        Optional<BoardSnapshotService.Snapshot> snapshot = findBaseSnapshot(board, revision);
+        // события без ревизии по доске не переиграть: без снимка элементы тех времён пропали бы
+        if (snapshot.isEmpty() && historyRepository.existsByBoardIdAndRevisionIsNull(board.getId())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Board state at revision " + revision + " predates revision tracking and has no snapshot");
+        }
+        long fromRevision = snapshot.map(BoardSnapshotService.Snapshot::revision).orElse(0L);
+
+        Map<String, JsonNode> state = new LinkedHashMap<>();
+        snapshot.ifPresent(s -> s.elements().forEach(dto -> state.put(dto.getId().toString(), toTree(dto))));
+
+        for (BoardHistoryEvent event : historyRepository.findBoardTimeline(board.getId(), fromRevision, revision)) {
+            JsonNode patch = parse(event.getAfterStateJson());
+            if (patch == null || event.getStateFormat() != BoardHistoryEvent.StateFormat.MERGE_PATCH) {
+                continue;
+            }
+            patch.fields().forEachRemaining(entry -> {
+                if (entry.getValue().isNull()) {
+                    state.remove(entry.getKey());
+                } else {
+                    state.put(entry.getKey(), JsonMergePatch.apply(state.get(entry.getKey()), entry.getValue()));
+                }
+            });
+        }
+
+        List<BoardElementDto> result = new ArrayList<>(state.size());
+        for (JsonNode node : state.values()) {
+            try {
+                result.add(objectMapper.treeToValue(node, BoardElementDto.class));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot rebuild board " + boardUuid + " at revision " + revision, e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    // уровень изоляции задаёт внешняя транзакция: вложенная BoardSnapshotService его не поменяет
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public long createSnapshot(UUID boardUuid) {
+        return snapshotService.createSnapshot(getBoardOrThrow(boardUuid).getId());
+    }
+
+    /**
+     * Снимок, с которого восстанавливается ревизия. Если история доски подрезана по сроку хранения,
+     * снимок обязан быть не старше history_floor_revision — иначе между ним и ревизией не хватает событий.
+     */
+    private Optional<BoardSnapshotService.Snapshot> findBaseSnapshot(Board board, long revision) {
+        long floor = board.getHistoryFloorRevision();
+        Optional<BoardSnapshotService.Snapshot> snapshot = snapshotService.findSnapshotAtOrBefore(board, revision);
+        if (revision < floor || snapshot.map(BoardSnapshotService.Snapshot::revision).orElse(0L) < floor) {
+            throw new ValidationException("History before revision " + floor + " is no longer retained");
+        }
+        return snapshot;
+    }
+
+    private JsonNode toTree(BoardElementDto dto) {
+        try {
+            return objectMapper.readTree(objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize element " + dto.getId(), e);
+        }
+    }
+
+    /**
+     * Полное состояние элемента из события старого формата: DTO, NullNode (элемент удалён)
+     * или пусто, если событие элемент не затрагивает. Групповые события хранили массив DTO.
+     */
+    private Optional<JsonNode> legacySnapshot(BoardHistoryEvent event, JsonNode after, Long elementId) {
+        if (elementId.equals(event.getElementId())) {
+            return Optional.of(after == null ? NullNode.getInstance() : after);
+        }
+        if (after != null && after.isArray()) {
+            for (JsonNode item : after) {
+                if (item.isObject() && elementId.equals(item.path("id").asLong())) {
+                    return Optional.of(item);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private JsonNode parse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
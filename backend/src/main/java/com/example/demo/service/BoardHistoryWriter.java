@@ -0,0 +1,352 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.mapper.JsonMergePatch;
+import com.example.demo.model.BoardHistoryEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная запись истории доски.
+ * Событие ставится в очередь только после коммита транзакции изменения,
+ * фоновый поток считает по состояниям до/после патчи (см. toPatches)
+ * и вставляет события JDBC-батчами.
+ * Батч остаётся у потока, пока не запишется: при ошибке БД запись повторяется
+ * с экспоненциальной паузой. Выбрасываются только события, которые БД отвергает
+ * по ограничению целостности (например, доска удалена до записи её истории).
+ * Если очередь переполнена, запись выполняется синхронно в потоке запроса,
+ * а если не удалась и она — поток запроса ждёт места в очереди (backpressure).
+ * Транзакция изменения к этому моменту уже закоммичена, поэтому ошибки в запрос не пробрасываются.
+ */
+@Slf4j
+@Component
+public class BoardHistoryWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO board_history_events
+                (board_id, actor_id, element_id, event_type, before_state_json, after_state_json,
+                 state_format, revision, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Событие истории до сериализации: состояния затронутых элементов до и после.
+     * Элемент, которого нет в beforeStates, создан; которого нет в afterStates — удалён.
+     * Списки и DTO не должны меняться после постановки в очередь.
+     */
+    public record PendingEvent(Long boardId,
+                               long revision,
+                               Long actorId,
+                               Long elementId,
+                               BoardHistoryEvent.EventType eventType,
+                               List<BoardElementDto> beforeStates,
+                               List<BoardElementDto> afterStates,
+                               Instant createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final BlockingQueue<PendingEvent> queue;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+
+    /** Батч, который фоновый поток пишет прямо сейчас; дописывается при остановке. */
+    private final List<PendingEvent> inFlight;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public BoardHistoryWriter(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${board.history.queue-capacity:10000}") int queueCapacity,
+                              @Value("${board.history.batch-size:500}") int batchSize,
+                              @Value("${board.history.offer-timeout-ms:50}") long offerTimeoutMs,
+                              @Value("${board.history.retry-initial-ms:100}") long retryInitialMs,
+                              @Value("${board.history.retry-max-ms:30000}") long retryMaxMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.retryInitialMs = retryInitialMs;
+        this.retryMaxMs = retryMaxMs;
+        this.inFlight = new ArrayList<>(batchSize);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::run, "board-history-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        if (worker.isAlive()) {
+            // inFlight ещё у фонового потока — дописывать его отсюда нельзя
+            log.error("History writer did not stop in time, {} queued history events are not written", queue.size());
+            return;
+        }
+        drainRemaining();
+    }
+
+    /**
+     * Ставит событие в очередь после коммита текущей транзакции (или сразу, если транзакции нет).
+     * При откате транзакции событие не пишется.
+     */
+    public void enqueueAfterCommit(PendingEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(event);
+            }
+        });
+    }
+
+    private void enqueue(PendingEvent event) {
+        try {
+            if (queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            // очередь забита — пишем сами
+            try {
+                writeBatch(List.of(event));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Synchronous history write failed, waiting for queue space: {}", e.getMessage());
+            }
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while enqueuing history event of board {} at revision {}",
+                    event.boardId(), event.revision());
+        }
+    }
+
+    /**
+     * Цикл фонового потока. Выходит только при остановке: иначе очередь некому разбирать
+     * и запросы встанут в enqueue на queue.put.
+     */
+    private void run() {
+        while (running) {
+            try {
+                // недописанный батч не бросаем и новых событий к нему не добираем
+                if (inFlight.isEmpty()) {
+                    PendingEvent first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    inFlight.add(first);
+                    queue.drainTo(inFlight, batchSize - 1);
+                }
+                writeWithRetry(inFlight);
+            } catch (InterruptedException e) {
+                // прерывание вне остановки игнорируем: флаг уже сброшен исключением
+                if (!running) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("Unexpected history writer failure, {} events stay in the batch", inFlight.size(), e);
+            }
+        }
+    }
+
+    /**
+     * Пишет батч, повторяя при ошибках БД; записанные события по ходу убираются из списка.
+     */
+    private void writeWithRetry(List<PendingEvent> batch) throws InterruptedException {
+        long backoffMs = retryInitialMs;
+        while (!batch.isEmpty()) {
+            try {
+                try {
+                    writeBatch(batch);
+                    batch.clear();
+                } catch (DataIntegrityViolationException e) {
+                    // одно событие не должно держать весь батч: пишем по одному
+                    writeEach(batch);
+                }
+            } catch (RuntimeException e) {
+                // сюда же попадают ошибки поштучной записи: незаписанные события остались в батче
+                if (!running) {
+                    // при остановке не ждём восстановления БД бесконечно
+                    log.error("Failed to write {} history events on shutdown: {}", batch.size(), e.getMessage());
+                    batch.clear();
+                    return;
+                }
+                log.warn("Failed to write {} history events, retrying in {} ms: {}",
+                        batch.size(), backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, retryMaxMs);
+            }
+        }
+    }
+
+    /**
+     * Пишет события по одному, выбрасывая отвергнутые по ограничению целостности.
+     * Прочие ошибки пробрасываются в writeWithRetry; записанные к этому моменту события уже убраны из батча.
+     */
+    private void writeEach(List<PendingEvent> batch) {
+        Iterator<PendingEvent> it = batch.iterator();
+        while (it.hasNext()) {
+            PendingEvent event = it.next();
+            try {
+                writeBatch(List.of(event));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Dropping history event of board {} at revision {} rejected by the database: {}",
+                        event.boardId(), event.revision(), e.getMessage());
+            }
+            it.remove();
+        }
+    }
+
+    private void drainRemaining() {
+        try {
+            writeWithRetry(inFlight);
+            List<PendingEvent> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeWithRetry(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while writing remaining history events, {} left in queue", queue.size());
+        }
+    }
+
+    private void writeBatch(List<PendingEvent> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (PendingEvent event : events) {
+            ObjectNode[] patches = toPatches(event);
+            rows.add(new Object[]{
+                    event.boardId(),
+                    event.actorId(),
+                    event.elementId(),
+                    event.eventType().name(),
+                    patches[0].toString(),
+                    patches[1].toString(),
+                    BoardHistoryEvent.StateFormat.MERGE_PATCH.name(),
+                    event.revision(),
+                    Timestamp.from(event.createdAt())
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+    }
+
+    /**
+     * Обратный и прямой патчи события в виде {"<elementId>": merge-patch элемента}.
+     * Прямой патч переводит элементы доски из состояния до события в состояние после,
+     * обратный — наоборот; null по ключу означает, что элемента нет.
+     */
+    ObjectNode[] toPatches(PendingEvent event) {
+        Map<Long, BoardElementDto> before = byId(event.beforeStates());
+        Map<Long, BoardElementDto> after = byId(event.afterStates());
+
+        Set<Long> ids = new LinkedHashSet<>(before.keySet());
+        ids.addAll(after.keySet());
+
+        ObjectNode reverse = objectMapper.createObjectNode();
+        ObjectNode forward = objectMapper.createObjectNode();
+        for (Long id : ids) {
+            BoardElementDto b = before.get(id);
+            BoardElementDto a = after.get(id);
+            forward.set(id.toString(), elementPatch(b, a));
+            reverse.set(id.toString(), elementPatch(a, b));
+        }
+        return new ObjectNode[]{reverse, forward};
+    }
+
+    private static Map<Long, BoardElementDto> byId(List<BoardElementDto> states) {
+        Map<Long, BoardElementDto> result = new LinkedHashMap<>();
+        if (states != null) {
+            for (BoardElementDto dto : states) {
+                result.put(dto.getId(), dto);
+            }
+        }
+        return result;
+    }
+
+    private JsonNode elementPatch(BoardElementDto source, BoardElementDto target) {
+        if (target == null) {
+            return NullNode.getInstance();
+        }
+        if (source == null) {
+            return toTree(target);
+        }
+
+        JsonNode patch = JsonMergePatch.diff(fieldsOf(source), fieldsOf(target));
+        // properties (с массивами точек) разбираем, только если они действительно менялись
+        if (!Objects.equals(source.getProperties(), target.getProperties())) {
+            ((ObjectNode) patch).set("properties",
+                    JsonMergePatch.diff(parse(source.getProperties()), parse(target.getProperties())));
+        }
+        return patch;
+    }
+
+    private ObjectNode fieldsOf(BoardElementDto dto) {
+        ObjectNode node = objectMapper.valueToTree(dto);
+        node.remove("properties");
+        return node;
+    }
+
+    private JsonNode toTree(BoardElementDto dto) {
+        ObjectNode node = fieldsOf(dto);
+        node.set("properties", parse(dto.getProperties()));
+        return node;
+    }
+
+    private JsonNode parse(String json) {
+        if (json == null) {
+            return NullNode.getInstance();
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to parse element properties: {}", e.getMessage());
+            return NullNode.getInstance();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.BoardRevisionRepository;
+import com.example.demo.repository.BoardSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически снимает доски, на которых с прошлого снимка накопилось много изменений.
+ */
+@Slf4j
+@Component
+public class BoardSnapshotScheduler {
+
+    private final BoardSnapshotRepository snapshotRepository;
+    private final BoardSnapshotService snapshotService;
+    private final BoardRevisionRepository revisionRepository;
+    private final long minChanges;
+    private final int boardsPerRun;
+
+    public BoardSnapshotScheduler(BoardSnapshotRepository snapshotRepository,
+                                  BoardSnapshotService snapshotService,
+                                  BoardRevisionRepository revisionRepository,
+                                  @Value("${board.snapshot.min-changes:500}") long minChanges,
+                                  @Value("${board.snapshot.boards-per-run:20}") int boardsPerRun) {
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotService = snapshotService;
+        this.revisionRepository = revisionRepository;
+        this.minChanges = minChanges;
+        this.boardsPerRun = boardsPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${board.snapshot.interval-ms:60000}")
+    public void snapshotDueBoards() {
+        for (Long boardId : snapshotRepository.findBoardsDueForSnapshot(minChanges, boardsPerRun)) {
+            try {
+                // отдельной транзакцией: снимок читается в REPEATABLE READ, а строка доски горячая
+                revisionRepository.markSnapshotted(boardId, snapshotService.createSnapshot(boardId));
+            } catch (RuntimeException e) {
+                log.warn("Failed to snapshot board {}: {}", boardId, e.getMessage());
+            }
+        }
+    }
+}
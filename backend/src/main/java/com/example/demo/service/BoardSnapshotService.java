@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.model.Board;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BoardSnapshotService {
+
+    /**
+     * Снимает текущее состояние доски; возвращает ревизию снимка.
+     */
+    long createSnapshot(Long boardId);
+
+    /**
+     * Текущие элементы доски из последнего снимка и изменений после него.
+     * Пусто, если снимков у доски нет.
+     */
+    Optional<List<BoardElementDto>> loadCurrentState(Board board);
+
+    /**
+     * Последний снимок не новее revision: ревизия снимка и его элементы.
+     */
+    Optional<Snapshot> findSnapshotAtOrBefore(Board board, long revision);
+
+    record Snapshot(long revision, List<BoardElementDto> elements) {
+    }
+}
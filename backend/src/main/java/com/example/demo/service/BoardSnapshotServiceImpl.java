@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.exception.NotFoundException;
+import com.example.demo.mapper.BoardElementMapper;
+import com.example.demo.mapper.BoardSnapshotCodec;
+import com.example.demo.model.Board;
+import com.example.demo.model.BoardSnapshot;
+import com.example.demo.repository.BoardElementRepository;
+import com.example.demo.repository.BoardRepository;
+import com.example.demo.repository.BoardRevisionRepository;
+import com.example.demo.repository.BoardSnapshotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@Transactional(readOnly = true)
+public class BoardSnapshotServiceImpl implements BoardSnapshotService {
+
+    private final BoardRepository boardRepository;
+    private final BoardElementRepository elementRepository;
+    private final BoardSnapshotRepository snapshotRepository;
+    private final BoardRevisionRepository revisionRepository;
+    private final BoardElementMapper elementMapper;
+    private final BoardSnapshotCodec snapshotCodec;
+    private final int keepSnapshots;
+
+    public BoardSnapshotServiceImpl(BoardRepository boardRepository,
+                                    BoardElementRepository elementRepository,
+                                    BoardSnapshotRepository snapshotRepository,
+                                    BoardRevisionRepository revisionRepository,
+                                    BoardElementMapper elementMapper,
+                                    BoardSnapshotCodec snapshotCodec,
+                                    @Value("${board.snapshot.keep:20}") int keepSnapshots) {
+        this.boardRepository = boardRepository;
+        this.elementRepository = elementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.revisionRepository = revisionRepository;
+        this.elementMapper = elementMapper;
+        this.snapshotCodec = snapshotCodec;
+        this.keepSnapshots = keepSnapshots;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public long createSnapshot(Long boardId) {
+        // REPEATABLE READ: ревизия доски и элементы читаются из одного снимка БД
+        Board board = boardRepository.findById(boardId)
+                .orElseThrow(() -> new NotFoundException("Board not found: " + boardId));
+
+        Optional<BoardSnapshot> latest = snapshotRepository.findFirstByBoardOrderByRevisionDesc(board);
+        if (latest.isPresent() && latest.get().getRevision() == board.getRevision()) {
+            return board.getRevision();
+        }
+
+        List<BoardElementDto> elements = elementRepository.findAllByBoard(board).stream()
+                .map(elementMapper::toDto)
+                .toList();
+
+        BoardSnapshot snapshot = new BoardSnapshot();
+        snapshot.setBoard(board);
+        snapshot.setRevision(board.getRevision());
+        snapshot.setElementCount(elements.size());
+        snapshot.setFormat(BoardSnapshot.Format.JSON_GZIP);
+        snapshot.setData(snapshotCodec.encode(elements));
+        snapshot.setCreatedAt(Instant.now());
+        snapshotRepository.save(snapshot);
+
+        snapshotRepository.deleteOlderThanLatest(board.getId(), keepSnapshots);
+        return snapshot.getRevision();
+    }
+
+    @Override
+    public Optional<List<BoardElementDto>> loadCurrentState(Board board) {
+        Optional<BoardSnapshot> latest = snapshotRepository.findFirstByBoardOrderByRevisionDesc(board);
+        if (latest.isEmpty()) {
+            return Optional.empty();
+        }
+        BoardSnapshot snapshot = latest.get();
+
+        Map<Long, BoardElementDto> elements = new LinkedHashMap<>();
+        for (BoardElementDto dto : snapshotCodec.decode(snapshot.getData())) {
+            elements.put(dto.getId(), dto);
+        }
+        // хвост: всё, что менялось или удалялось после снимка
+        for (BoardElementDto dto : elementRepository
+                .findAllByBoardAndRevisionGreaterThan(board, snapshot.getRevision()).stream()
+                .map(elementMapper::toDto)
+                .toList()) {
+            elements.put(dto.getId(), dto);
+        }
+        for (Long deletedId : revisionRepository.findTombstonesSince(board.getId(), snapshot.getRevision())) {
+            elements.remove(deletedId);
+        }
+        // порядок вставки в карту — не z-порядок: сортируем, как и запрос к БД
+        return Optional.of(elements.values().stream()
+                .sorted(Comparator.comparing(BoardElementDto::getOrderKey).thenComparing(BoardElementDto::getId))
+                .toList());
+    }
+
+    @Override
+    public Optional<Snapshot> findSnapshotAtOrBefore(Board board, long revision) {
+        return snapshotRepository.findFirstByBoardAndRevisionLessThanEqualOrderByRevisionDesc(board, revision)
+                .map(snapshot -> new Snapshot(snapshot.getRevision(), snapshotCodec.decode(snapshot.getData())));
+    }
+}
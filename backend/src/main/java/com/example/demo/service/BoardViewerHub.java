@@ -0,0 +1,343 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardChangesDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE-лента дельт элементов для зрителей публичных досок.
+ * <p>
+ * Все зрители доски сидят на одной подписке: событие сериализуется один раз, а зрителям
+ * раздаётся готовый кадр. У каждого соединения своя очередь ограниченного размера; запись в сокет
+ * идёт на виртуальном потоке, так что медленный зритель не держит ни публикующий поток, ни остальных.
+ * Если очередь переполнилась, она очищается и зритель получает одно событие resync с последней
+ * доставленной ему ревизией: клиент дочитывает изменения по ней (GET .../elements/changes?since=...)
+ * вместо пропущенных дельт. Пульс в размер очереди не входит.
+ */
+@Slf4j
+@Component
+public class BoardViewerHub {
+
+    static final String ELEMENTS_EVENT = "elements";
+    static final String RESYNC_EVENT = "resync";
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+
+    private final ObjectMapper objectMapper;
+    private final BoardElementService boardElementService;
+    private final int bufferSize;
+    private final int maxViewers;
+    private final long timeoutMs;
+
+    private final Map<UUID, Feed> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger viewerCount = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter resyncs;
+
+    public BoardViewerHub(ObjectMapper objectMapper,
+                          BoardElementService boardElementService,
+                          MeterRegistry meterRegistry,
+                          @Value("${board.viewers.buffer-size:64}") int bufferSize,
+                          @Value("${board.viewers.max-connections:10000}") int maxViewers,
+                          @Value("${board.viewers.timeout-ms:1800000}") long timeoutMs) {
+        this.objectMapper = objectMapper;
+        this.boardElementService = boardElementService;
+        this.bufferSize = bufferSize;
+        this.maxViewers = maxViewers;
+        this.timeoutMs = timeoutMs;
+
+        Gauge.builder("board.viewers.connections", viewerCount, AtomicInteger::get)
+                .description("Открытые SSE-соединения зрителей")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("board.viewers.resyncs")
+                .description("Зрители, отставшие настолько, что их очередь была сброшена")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Общая подписка доски: её зрители.
+     */
+    private static final class Feed {
+        private final Set<Viewer> viewers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Кадр очереди зрителя. data == null — маркер resync: его данные собираются при отправке,
+     * когда известна последняя доставленная зрителю ревизия.
+     */
+    private record Frame(Set<DataWithMediaType> data, Long revision) {
+        private static final Frame RESYNC = new Frame(null, null);
+    }
+
+    private final class Viewer {
+        private final UUID boardUuid;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        /** Пульс не занимает места в очереди: достаточно одного неотправленного. */
+        private boolean heartbeatDue;
+        /** Последняя ревизия, дошедшая до клиента; -1 — неизвестна. */
+        private long delivered;
+        private boolean sending;
+        private boolean closed;
+
+        /**
+         * Зритель создаётся на паузе: кадры копятся, пока {@link #start} не поставит перед ними догоняющий.
+         */
+        private Viewer(UUID boardUuid, SseEmitter emitter, long delivered) {
+            this.boardUuid = boardUuid;
+            this.emitter = emitter;
+            this.delivered = delivered;
+            this.sending = true;
+        }
+
+        private void start(Frame first) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (first != null) {
+                    // дельты, уже вошедшие в догоняющий кадр, повторно не шлём
+                    if (first.revision() != null) {
+                        queue.removeIf(frame -> frame.revision() != null && frame.revision() <= first.revision());
+                    }
+                    queue.addFirst(first);
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        private void offer(Frame frame) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= bufferSize) {
+                    // отставший зритель: пропущенное он дочитает по ревизии
+                    queue.clear();
+                    queue.add(Frame.RESYNC);
+                    resyncs.increment();
+                } else {
+                    queue.add(frame);
+                }
+                if (!wake()) {
+                    return;
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                heartbeatDue = true;
+                if (!wake()) {
+                    return;
+                }
+            }
+            senders.execute(this::drain);
+        }
+
+        /**
+         * Под монитором зрителя: true, если отправку нужно запустить.
+         */
+        private boolean wake() {
+            if (sending) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                Set<DataWithMediaType> data;
+                Long revision;
+                synchronized (this) {
+                    Frame frame = heartbeatDue ? null : queue.poll();
+                    if (closed || (frame == null && !heartbeatDue)) {
+                        sending = false;
+                        return;
+                    }
+                    if (frame == null) {
+                        heartbeatDue = false;
+                        data = HEARTBEAT;
+                        revision = null;
+                    } else {
+                        data = frame.data() != null ? frame.data() : resyncData(delivered);
+                        revision = frame.revision();
+                    }
+                }
+                try {
+                    emitter.send(data);
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+                if (revision != null) {
+                    synchronized (this) {
+                        delivered = Math.max(delivered, revision);
+                    }
+                }
+            }
+        }
+
+        private void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            viewerCount.decrementAndGet();
+            feeds.computeIfPresent(boardUuid, (uuid, feed) -> {
+                feed.viewers.remove(this);
+                return feed.viewers.isEmpty() ? null : feed;
+            });
+        }
+    }
+
+    /**
+     * Новое соединение зрителя. lastEventId — ревизия, на которой оборвалось прошлое соединение:
+     * такой зритель сначала получает одним кадром elements всё изменённое после неё,
+     * а если дочитать не удалось — resync.
+     */
+    public SseEmitter connect(UUID boardUuid, String lastEventId) {
+        if (viewerCount.incrementAndGet() > maxViewers) {
+            viewerCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many board viewers");
+        }
+        Long since = parseRevision(lastEventId);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Viewer viewer = new Viewer(boardUuid, emitter, since != null ? since : -1L);
+        emitter.onCompletion(viewer::close);
+        emitter.onTimeout(viewer::close);
+        emitter.onError(e -> viewer.close());
+
+        // подписываемся до чтения изменений: всё закоммиченное после него придёт дельтами
+        feeds.compute(boardUuid, (uuid, existing) -> {
+            Feed target = existing != null ? existing : new Feed();
+            target.viewers.add(viewer);
+            return target;
+        });
+        Frame first = null;
+        if (since != null) {
+            first = replayFrame(boardUuid, since);
+        } else if (lastEventId != null && !lastEventId.isBlank()) {
+            first = Frame.RESYNC;
+        }
+        viewer.start(first);
+        return emitter;
+    }
+
+    private Frame replayFrame(UUID boardUuid, long since) {
+        BoardChangesDto changes;
+        try {
+            changes = boardElementService.getChangesSince(boardUuid, since);
+        } catch (RuntimeException e) {
+            log.warn("Failed to replay board {} since revision {} for viewer: {}", boardUuid, since, e.getMessage());
+            return Frame.RESYNC;
+        }
+        BoardElementEvent event = BoardElementEvent.batch(boardUuid, changes.getRevision(),
+                changes.getUpserts(), changes.getDeletedIds());
+        return elementsFrame(event);
+    }
+
+    private static Long parseRevision(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onElementEvent(BoardElementEvent event) {
+        Feed feed = feeds.get(event.getBoardUuid());
+        if (feed == null) {
+            return;
+        }
+        Frame frame = elementsFrame(event);
+        for (Viewer viewer : feed.viewers) {
+            viewer.offer(frame);
+        }
+    }
+
+    private Frame elementsFrame(BoardElementEvent event) {
+        SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                .name(ELEMENTS_EVENT)
+                .data(toJson(event), MediaType.APPLICATION_JSON);
+        if (event.getRevision() != null) {
+            builder.id(event.getRevision().toString());
+        }
+        return new Frame(builder.build(), event.getRevision());
+    }
+
+    /**
+     * Комментарий-пульс: держит соединения через прокси и выявляет закрытые клиентом.
+     */
+    @Scheduled(fixedDelayString = "${board.viewers.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (feeds.isEmpty()) {
+            return;
+        }
+        for (Feed feed : feeds.values()) {
+            feed.viewers.forEach(Viewer::heartbeat);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        feeds.values().forEach(feed -> feed.viewers.forEach(viewer -> viewer.emitter.complete()));
+        senders.shutdown();
+    }
+
+    private Set<DataWithMediaType> resyncData(long revision) {
+        // -1: неизвестно, что уже есть у клиента, — он перечитывает доску целиком
+        return SseEmitter.event()
+                .name(RESYNC_EVENT)
+                .data(toJson(Map.of("revision", revision)), MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize viewer event", e);
+        }
+    }
+}
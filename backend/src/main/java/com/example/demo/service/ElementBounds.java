@@ -0,0 +1,45 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+
+/**
+ * Осевой ограничивающий прямоугольник элемента с учётом поворота.
+ * Поворот, как и в Konva, задаётся в градусах вокруг точки (x, y).
+ */
+public record ElementBounds(double minX, double minY, double maxX, double maxY) {
+
+    public static ElementBounds of(BoardElementDto dto) {
+        return of(dto.getX(), dto.getY(), dto.getWidth(), dto.getHeight(), dto.getRotation());
+    }
+
+    public static ElementBounds of(double x, double y, double width, double height, double rotation) {
+        if (rotation % 360 == 0) {
+            return new ElementBounds(
+                    Math.min(x, x + width), Math.min(y, y + height),
+                    Math.max(x, x + width), Math.max(y, y + height));
+        }
+
+        double rad = Math.toRadians(rotation);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+
+        // углы (0,0), (w,0), (w,h), (0,h) после поворота
+        double[] xs = {0, width * cos, width * cos - height * sin, -height * sin};
+        double[] ys = {0, width * sin, width * sin + height * cos, height * cos};
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 4; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        return new ElementBounds(x + minX, y + minY, x + maxX, y + maxY);
+    }
+
+    public boolean intersects(ElementBounds other) {
+        return minX <= other.maxX && maxX >= other.minX
+                && minY <= other.maxY && maxY >= other.minY;
+    }
+}
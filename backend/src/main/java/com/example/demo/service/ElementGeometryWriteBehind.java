@@ -0,0 +1,168 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ElementTransformRequest;
+import com.example.demo.repository.BoardRevisionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись геометрии элементов.
+ * Последнее положение каждого элемента копится в памяти и раз в тик
+ * уходит в board_elements одним JDBC-батчем; каждая доска при этом
+ * получает одну новую ревизию на все свои элементы.
+ * <p>
+ * Сброс доски и {@link #discard} идут под одной блокировкой доски: после discard
+ * ни один уже начатый сброс не перезапишет геометрию, сохранённую синхронно.
+ * Не записанная из-за ошибки геометрия остаётся в очереди до следующего тика;
+ * после max-flush-attempts неудач подряд она выбрасывается, а доска вытесняется из кэша.
+ */
+@Slf4j
+@Component
+public class ElementGeometryWriteBehind {
+
+    private static final String SET_GEOMETRY =
+            "UPDATE board_elements SET x = ?, y = ?, width = ?, height = ?, rotation = ?, updated_at = ?, revision = ?, "
+                    + "version = version + 1";
+
+    private static final String UPDATE_GEOMETRY_SQL = SET_GEOMETRY + ", geometry_version = version + 1 WHERE id = ?";
+
+    /**
+     * Промежуточные кадры жеста: не считаются правкой геометрии для проверки baseVersion
+     * (итог жеста проверяется и отмечается при синхронном сохранении) и не двигают заблокированный элемент.
+     */
+    private static final String UPDATE_DRAFT_GEOMETRY_SQL = SET_GEOMETRY + " WHERE id = ? AND NOT locked_position";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoardRevisionRepository revisionRepository;
+    private final BoardElementCache elementCache;
+    private final int maxFlushAttempts;
+
+    private final Map<UUID, PendingBoard> pending = new ConcurrentHashMap<>();
+
+    public ElementGeometryWriteBehind(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      BoardRevisionRepository revisionRepository,
+                                      BoardElementCache elementCache,
+                                      @Value("${board.cache.max-flush-attempts:5}") int maxFlushAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.revisionRepository = revisionRepository;
+        this.elementCache = elementCache;
+        this.maxFlushAttempts = maxFlushAttempts;
+    }
+
+    /**
+     * Несохранённая геометрия доски. ReentrantLock, а не synchronized:
+     * под блокировкой идёт транзакция, а виртуальный поток на мониторе закрепил бы поток-носитель.
+     */
+    private static final class PendingBoard {
+        private final Map<Long, ElementTransformRequest> geometries = new ConcurrentHashMap<>();
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private int failures;
+    }
+
+    public void enqueue(UUID boardUuid, Long elementId, ElementTransformRequest geometry) {
+        // compute атомарен относительно удаления пустой доски во flush — кадр не попадёт в снятую запись
+        pending.compute(boardUuid, (k, board) -> {
+            PendingBoard result = board != null ? board : new PendingBoard();
+            result.geometries.put(elementId, geometry);
+            return result;
+        });
+    }
+
+    /**
+     * Убирает отложенную запись — например, когда итог жеста сохраняется синхронно.
+     * Если геометрия элемента сейчас сбрасывается, ждёт коммита сброса: синхронная запись после
+     * discard гарантированно окажется последней.
+     */
+    public void discard(UUID boardUuid, Long elementId) {
+        PendingBoard board = pending.get(boardUuid);
+        if (board == null) {
+            return;
+        }
+        board.flushLock.lock();
+        try {
+            board.geometries.remove(elementId);
+        } finally {
+            board.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает геометрию элементов в рамках текущей транзакции на заданной ревизии доски.
+     */
+    public void write(long revision, Map<Long, ElementTransformRequest> geometries) {
+        batchUpdate(UPDATE_GEOMETRY_SQL, revision, geometries);
+    }
+
+    private void batchUpdate(String sql, long revision, Map<Long, ElementTransformRequest> geometries) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> batch = new ArrayList<>(geometries.size());
+        geometries.forEach((elementId, geometry) -> batch.add(new Object[]{
+                geometry.getX(), geometry.getY(),
+                geometry.getWidth(), geometry.getHeight(),
+                geometry.getRotation(), now, revision, elementId
+        }));
+        jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    @Scheduled(fixedDelayString = "${board.cache.flush-interval-ms:200}")
+    public void flush() {
+        for (UUID boardUuid : List.copyOf(pending.keySet())) {
+            PendingBoard board = pending.get(boardUuid);
+            if (board == null) {
+                continue;
+            }
+            board.flushLock.lock();
+            try {
+                flushBoard(boardUuid, board);
+            } finally {
+                board.flushLock.unlock();
+            }
+            pending.computeIfPresent(boardUuid, (k, current) -> current.geometries.isEmpty() ? null : current);
+        }
+    }
+
+    private void flushBoard(UUID boardUuid, PendingBoard board) {
+        Map<Long, ElementTransformRequest> geometries = Map.copyOf(board.geometries);
+        if (geometries.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    batchUpdate(UPDATE_DRAFT_GEOMETRY_SQL, revisionRepository.nextRevision(boardUuid), geometries));
+        } catch (RuntimeException e) {
+            board.failures++;
+            if (board.failures < maxFlushAttempts) {
+                log.warn("Failed to flush {} element geometries of board {} (attempt {}), will retry: {}",
+                        geometries.size(), boardUuid, board.failures, e.getMessage());
+                return;
+            }
+            // БД так и не приняла геометрию: кэш с кадрами расходится с ней, пусть перечитается
+            log.error("Dropping {} element geometries of board {} after {} failed flushes: {}",
+                    geometries.size(), boardUuid, board.failures, e.getMessage());
+            geometries.forEach(board.geometries::remove);
+            board.failures = 0;
+            elementCache.evict(boardUuid);
+            return;
+        }
+        board.failures = 0;
+        // кадры, пришедшие во время записи, остаются до следующего тика
+        geometries.forEach(board.geometries::remove);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementUpdateRequest;
+import com.example.demo.model.BoardElement;
+
+/**
+ * Слияние параллельных правок элемента по группам полей.
+ * <p>
+ * Клиент присылает baseVersion — версию, от которой он правил. Если с тех пор элемент менялся,
+ * правка всё равно применяется, когда задевает только группы, которые никто не трогал:
+ * перемещение и смена цвета одного элемента переживают друг друга.
+ * Конфликт — только если изменённая с baseVersion группа (геометрия или properties) правится снова.
+ * Прочие атрибуты (слой, группа, блокировки) сливаются по правилу «последняя запись побеждает».
+ */
+final class ElementMergePolicy {
+
+    private ElementMergePolicy() {
+    }
+
+    static boolean touchesGeometry(BoardElementUpdateRequest request) {
+        return request.getX() != null || request.getY() != null
+                || request.getWidth() != null || request.getHeight() != null
+                || request.getRotation() != null;
+    }
+
+    static boolean touchesProperties(BoardElementUpdateRequest request) {
+        return request.getProperties() != null;
+    }
+
+    /**
+     * Описание конфликта или null, если правку от baseVersion можно применить к текущему элементу.
+     */
+    static String findConflict(BoardElement element, Long baseVersion, boolean geometry, boolean properties) {
+        if (baseVersion == null || baseVersion >= element.getVersion()) {
+            return null;
+        }
+        if (geometry && element.getGeometryVersion() > baseVersion) {
+            return "Element " + element.getId() + " geometry changed since version " + baseVersion;
+        }
+        if (properties && element.getPropertiesVersion() > baseVersion) {
+            return "Element " + element.getId() + " properties changed since version " + baseVersion;
+        }
+        return null;
+    }
+
+    /**
+     * Отмечает изменённые группы версией, которую строка получит при ближайшем UPDATE.
+     */
+    static void markChanged(BoardElement element, boolean geometry, boolean properties) {
+        long nextVersion = element.getVersion() + 1;
+        if (geometry) {
+            element.setGeometryVersion(nextVersion);
+        }
+        if (properties) {
+            element.setPropertiesVersion(nextVersion);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.mapper.PointsCodec;
+import com.example.demo.model.BoardElement.ElementType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Упаковка точек BRUSH/ARROW при записи и выбор уровня детализации при чтении.
+ * <p>
+ * При записи points вынимаются из JSON свойств, при необходимости упрощаются
+ * (Рамер — Дуглас — Пекер) и сохраняются через {@link PointsCodec}; для длинных штрихов
+ * заранее строятся грубые варианты. Клиент по-прежнему получает points в properties.
+ */
+@Component
+public class ElementPointsPacker {
+
+    private static final String POINTS = "points";
+
+    private final ObjectMapper objectMapper;
+    private final int quantization;
+    private final double simplifyTolerance;
+    private final double[] lodTolerances;
+    private final int lodMinPoints;
+    private final double lodMaxScreenError;
+
+    public ElementPointsPacker(ObjectMapper objectMapper,
+                               @Value("${board.points.quantization:100}") int quantization,
+                               @Value("${board.points.simplify-tolerance:0}") double simplifyTolerance,
+                               @Value("${board.points.lod-tolerances:2,8}") double[] lodTolerances,
+                               @Value("${board.points.lod-min-points:32}") int lodMinPoints,
+                               @Value("${board.points.lod-max-screen-error:0.5}") double lodMaxScreenError) {
+        this.objectMapper = objectMapper;
+        this.quantization = quantization;
+        this.simplifyTolerance = simplifyTolerance;
+        this.lodTolerances = lodTolerances.clone();
+        Arrays.sort(this.lodTolerances);
+        this.lodMinPoints = lodMinPoints;
+        this.lodMaxScreenError = lodMaxScreenError;
+    }
+
+    /**
+     * Свойства без points + упакованные точки; points и lod равны null, если упаковывать нечего.
+     */
+    public record Packed(String propertiesJson, byte[] points, byte[] lod) {
+    }
+
+    public Packed pack(ElementType type, JsonNode properties) {
+        double[] coords = extractPoints(type, properties);
+        if (coords == null) {
+            return new Packed(toJson(properties), null, null);
+        }
+        ObjectNode stripped = ((ObjectNode) properties).deepCopy();
+        stripped.remove(POINTS);
+
+        if (simplifyTolerance > 0) {
+            coords = simplify(coords, simplifyTolerance);
+        }
+        return new Packed(toJson(stripped), PointsCodec.encode(coords, quantization), buildLevels(coords));
+    }
+
+    /**
+     * Элемент для отрисовки в масштабе scale (пикселей экрана на единицу доски):
+     * самый грубый уровень, ошибка которого на экране не превышает lod-max-screen-error.
+     * Исходный DTO (он может лежать в кэше) не меняется.
+     */
+    public BoardElementDto forScale(BoardElementDto dto, double scale) {
+        if (dto.getPointsLod() == null || scale <= 0) {
+            return dto;
+        }
+        byte[] level = PointsCodec.selectLevel(dto.getPointsLod(), lodMaxScreenError / scale);
+        if (level == null) {
+            return dto;
+        }
+        BoardElementDto copy = new BoardElementDto();
+        copy.setId(dto.getId());
+        copy.setType(dto.getType());
+        copy.setX(dto.getX());
+        copy.setY(dto.getY());
+        copy.setWidth(dto.getWidth());
+        copy.setHeight(dto.getHeight());
+        copy.setRotation(dto.getRotation());
+        copy.setZIndex(dto.getZIndex());
+        copy.setOrderKey(dto.getOrderKey());
+        copy.setGroupId(dto.getGroupId());
+        copy.setLockedPosition(dto.isLockedPosition());
+        copy.setLockedEditing(dto.isLockedEditing());
+        copy.setMediaId(dto.getMediaId());
+        copy.setRevision(dto.getRevision());
+        copy.setVersion(dto.getVersion());
+        copy.setProperties(PointsCodec.replacePoints(dto.getProperties(), level));
+        return copy;
+    }
+
+    private static double[] extractPoints(ElementType type, JsonNode properties) {
+        if (type != ElementType.BRUSH && type != ElementType.ARROW) {
+            return null;
+        }
+        if (!(properties instanceof ObjectNode) || !properties.path(POINTS).isArray()) {
+            return null;
+        }
+        JsonNode points = properties.get(POINTS);
+        if (points.size() < 4 || points.size() % 2 != 0) {
+            return null;
+        }
+        double[] coords = new double[points.size()];
+        for (int i = 0; i < coords.length; i++) {
+            JsonNode value = points.get(i);
+            if (!value.isNumber() || !Double.isFinite(value.doubleValue())) {
+                return null;
+            }
+            coords[i] = value.doubleValue();
+        }
+        return coords;
+    }
+
+    private byte[] buildLevels(double[] coords) {
+        if (coords.length / 2 < lodMinPoints || lodTolerances.length == 0) {
+            return null;
+        }
+        List<Long> tolerances = new ArrayList<>();
+        List<byte[]> levels = new ArrayList<>();
+        int previousLength = coords.length;
+        for (double tolerance : lodTolerances) {
+            if (tolerance <= simplifyTolerance) {
+                continue;
+            }
+            double[] simplified = simplify(coords, tolerance);
+            // уровень, почти не отличающийся от предыдущего, не стоит места в строке
+            if (simplified.length > previousLength * 0.8) {
+                continue;
+            }
+            tolerances.add(Math.round(tolerance * quantization));
+            levels.add(PointsCodec.encode(simplified, quantization));
+            previousLength = simplified.length;
+        }
+        if (levels.isEmpty()) {
+            return null;
+        }
+        return PointsCodec.encodeLevels(
+                tolerances.stream().mapToLong(Long::longValue).toArray(),
+                levels.toArray(byte[][]::new));
+    }
+
+    /**
+     * Рамер — Дуглас — Пекер без рекурсии: штрихи бывают на десятки тысяч точек.
+     */
+    static double[] simplify(double[] coords, double tolerance) {
+        int count = coords.length / 2;
+        if (count < 3) {
+            return coords;
+        }
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        double toleranceSq = tolerance * tolerance;
+
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{0, count - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int first = range[0];
+            int last = range[1];
+            double maxDistSq = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distSq = segmentDistanceSq(coords, i, first, last);
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    index = i;
+                }
+            }
+            if (index >= 0 && maxDistSq > toleranceSq) {
+                keep[index] = true;
+                ranges.push(new int[]{first, index});
+                ranges.push(new int[]{index, last});
+            }
+        }
+
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) kept++;
+        }
+        double[] result = new double[kept * 2];
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                result[j++] = coords[2 * i];
+                result[j++] = coords[2 * i + 1];
+            }
+        }
+        return result;
+    }
+
+    private static double segmentDistanceSq(double[] c, int p, int a, int b) {
+        double px = c[2 * p], py = c[2 * p + 1];
+        double ax = c[2 * a], ay = c[2 * a + 1];
+        double dx = c[2 * b] - ax, dy = c[2 * b + 1] - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx), ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    private String toJson(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid element properties", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Равномерная сетка для поиска элементов доски по области видимости.
+ * Элемент регистрируется во всех ячейках, которые пересекает его bbox;
+ * очень крупные элементы хранятся отдельно и проверяются всегда.
+ * Номера ячеек ограничены диапазоном int (так их и кодирует cellKey): дальние координаты
+ * попадают в крайние ячейки, а точную проверку всё равно делает intersects.
+ */
+public class ElementSpatialIndex {
+
+    private static final int MAX_CELLS_PER_ELEMENT = 64;
+
+    private final double cellSize;
+
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, ElementBounds> bounds = new HashMap<>();
+    private final Set<Long> oversized = new HashSet<>();
+
+    public ElementSpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private long cell(double coordinate) {
+        // без ограничения огромная координата даёт Long.MAX_VALUE, и цикл по ячейкам переполняется;
+        // NaN превращается в нулевую ячейку
+        double cell = Math.floor(coordinate / cellSize);
+        return (long) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cell));
+    }
+
+    public synchronized void put(Long id, ElementBounds elementBounds) {
+        remove(id);
+        bounds.put(id, elementBounds);
+
+        long x0 = cell(elementBounds.minX()), x1 = cell(elementBounds.maxX());
+        long y0 = cell(elementBounds.minY()), y1 = cell(elementBounds.maxY());
+        if ((double) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS_PER_ELEMENT) {
+            oversized.add(id);
+            return;
+        }
+        for (long cx = x0; cx <= x1; cx++) {
+            for (long cy = y0; cy <= y1; cy++) {
+                cells.computeIfAbsent(cellKey(cx, cy), k -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        ElementBounds old = bounds.remove(id);
+        if (old == null || oversized.remove(id)) {
+            return;
+        }
+        for (long cx = cell(old.minX()); cx <= cell(old.maxX()); cx++) {
+            for (long cy = cell(old.minY()); cy <= cell(old.maxY()); cy++) {
+                long key = cellKey(cx, cy);
+                Set<Long> ids = cells.get(key);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Идентификаторы элементов, bbox которых пересекает viewport.
+     */
+    public synchronized List<Long> query(ElementBounds viewport) {
+        Set<Long> candidates = new HashSet<>(oversized);
+
+        long x0 = cell(viewport.minX()), x1 = cell(viewport.maxX());
+        long y0 = cell(viewport.minY()), y1 = cell(viewport.maxY());
+        if ((double) (x1 - x0 + 1) * (y1 - y0 + 1) > cells.size()) {
+            // viewport больше занятой части доски — дешевле пройти по всем элементам
+            candidates.addAll(bounds.keySet());
+        } else {
+            for (long cx = x0; cx <= x1; cx++) {
+                for (long cy = y0; cy <= y1; cy++) {
+                    Set<Long> ids = cells.get(cellKey(cx, cy));
+                    if (ids != null) {
+                        candidates.addAll(ids);
+                    }
+                }
+            }
+        }
+
+        List<Long> result = new ArrayList<>();
+        for (Long id : candidates) {
+            if (bounds.get(id).intersects(viewport)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.ElementTransformRequest;
+import com.example.demo.model.BoardHistoryEvent;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Потоковое перемещение элементов (drag).
+ * Кадры жеста сразу рассылаются подписчикам доски, последняя геометрия
+ * копится в ElementGeometryWriteBehind и сбрасывается в БД батчами,
+ * а событие истории пишется одно на весь жест.
+ * Жест, элемент которого заблокировали или удалили, обрывается: следующий кадр
+ * начинает новый жест и получает отказ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ElementTransformStream {
+
+    private final BoardElementService boardElementService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ElementGeometryWriteBehind writeBehind;
+
+    @Value("${board.transform-stream.idle-timeout-ms:2000}")
+    private long idleTimeoutMs;
+
+    private final Map<Long, Gesture> gestures = new ConcurrentHashMap<>();
+
+    private static final class Gesture {
+        private final UUID boardUuid;
+        private final Long elementId;
+        private final BoardElementDto start;
+        /** Версия, от которой правит клиент: присланная в первом кадре или версия начала жеста. */
+        private final long baseVersion;
+        private ElementTransformRequest latest;
+        private long lastFrameAt;
+
+        private Gesture(UUID boardUuid, Long elementId, BoardElementDto start, Long baseVersion) {
+            this.boardUuid = boardUuid;
+            this.elementId = elementId;
+            this.start = start;
+            this.baseVersion = baseVersion != null ? baseVersion : start.getVersion();
+            this.lastFrameAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Принимает очередной кадр перемещения. БД читается только на первом кадре жеста.
+     */
+    public void acceptFrame(UUID boardUuid, Long elementId, ElementTransformRequest frame) {
+        Gesture gesture = gestures.get(elementId);
+        if (gesture == null) {
+            // БД читаем вне операции над картой: computeIfAbsent держал бы её сегмент на время запроса
+            Gesture started = new Gesture(boardUuid, elementId,
+                    boardElementService.beginTransformGesture(boardUuid, elementId), frame.getBaseVersion());
+            Gesture existing = gestures.putIfAbsent(elementId, started);
+            gesture = existing != null ? existing : started;
+        }
+
+        if (!gesture.boardUuid.equals(boardUuid)) {
+            throw new ValidationException(
+                    "Element " + elementId + " does not belong to board " + boardUuid);
+        }
+
+        BoardElementDto preview;
+        synchronized (gesture) {
+            gesture.latest = frame;
+            gesture.lastFrameAt = System.currentTimeMillis();
+            preview = withGeometry(gesture.start, frame);
+        }
+        writeBehind.enqueue(boardUuid, elementId, frame);
+
+        // кадр не проходит через транзакцию — рассылается сразу
+        eventPublisher.publishEvent(BoardElementEvent.upserted(
+                boardUuid, BoardHistoryEvent.EventType.ELEMENT_UPDATED, null, List.of(preview)));
+    }
+
+    /**
+     * Завершает жест: сохраняет итоговую геометрию и пишет одно событие истории.
+     * finalFrame может быть null — тогда берётся последний принятый кадр.
+     */
+    public BoardElementDto endGesture(UUID boardUuid, Long elementId, ElementTransformRequest finalFrame) {
+        if (finalFrame != null) {
+            acceptFrame(boardUuid, elementId, finalFrame);
+        }
+
+        Gesture gesture = gestures.remove(elementId);
+        if (gesture == null) {
+            return null;
+        }
+        return finish(gesture);
+    }
+
+    /**
+     * Завершает жесты, по которым давно не было кадров (клиент отвалился, не прислав end).
+     */
+    @Scheduled(fixedDelayString = "${board.transform-stream.sweep-interval-ms:500}")
+    public void finishIdleGestures() {
+        long threshold = System.currentTimeMillis() - idleTimeoutMs;
+
+        for (Gesture gesture : gestures.values()) {
+            boolean idle;
+            synchronized (gesture) {
+                idle = gesture.lastFrameAt < threshold;
+            }
+            if (!idle || !gestures.remove(gesture.elementId, gesture)) {
+                continue;
+            }
+            try {
+                finish(gesture);
+            } catch (RuntimeException e) {
+                log.warn("Failed to finish transform of element {}: {}", gesture.elementId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Обрывает жесты элементов, которые после коммита оказались заблокированы или удалены.
+     * Итоговое сохранение всё равно перепроверяет блокировку; здесь — чтобы не копить и не рассылать кадры.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onElementEvent(BoardElementEvent event) {
+        if (event.getRevision() == null || gestures.isEmpty()) {
+            return;
+        }
+        for (BoardElementDto dto : event.getUpserts()) {
+            if (dto.isLockedPosition()) {
+                cancel(event.getBoardUuid(), dto.getId());
+            }
+        }
+        for (Long id : event.getDeletedIds()) {
+            cancel(event.getBoardUuid(), id);
+        }
+    }
+
+    private void cancel(UUID boardUuid, Long elementId) {
+        Gesture gesture = gestures.get(elementId);
+        if (gesture != null && gesture.boardUuid.equals(boardUuid) && gestures.remove(elementId, gesture)) {
+            writeBehind.discard(boardUuid, elementId);
+        }
+    }
+
+    private BoardElementDto finish(Gesture gesture) {
+        ElementTransformRequest last;
+        synchronized (gesture) {
+            last = gesture.latest;
+        }
+        if (last == null) {
+            return gesture.start;
+        }
+        writeBehind.discard(gesture.boardUuid, gesture.elementId);
+
+        ElementTransformRequest result = new ElementTransformRequest();
+        result.setX(last.getX());
+        result.setY(last.getY());
+        result.setWidth(last.getWidth());
+        result.setHeight(last.getHeight());
+        result.setRotation(last.getRotation());
+        result.setBaseVersion(gesture.baseVersion);
+        return boardElementService.persistTransformGesture(
+                gesture.boardUuid, gesture.elementId, result, gesture.start);
+    }
+
+    private static BoardElementDto withGeometry(BoardElementDto source, ElementTransformRequest frame) {
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(source.getId());
+        dto.setType(source.getType());
+        dto.setX(frame.getX());
+        dto.setY(frame.getY());
+        dto.setWidth(frame.getWidth());
+        dto.setHeight(frame.getHeight());
+        dto.setRotation(frame.getRotation());
+        dto.setZIndex(source.getZIndex());
+        dto.setOrderKey(source.getOrderKey());
+        dto.setGroupId(source.getGroupId());
+        dto.setLockedPosition(source.isLockedPosition());
+        dto.setLockedEditing(source.isLockedEditing());
+        dto.setMediaId(source.getMediaId());
+        dto.setRevision(source.getRevision());
+        dto.setVersion(source.getVersion());
+        dto.setProperties(source.getProperties());
+        dto.setPointsLod(source.getPointsLod());
+        return dto;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Фоновое удаление просроченных временных досок.
+ * Строки доски удаляются пачками по chunk-size, каждая пачка — в своей короткой транзакции,
+ * поэтому блокировки не держатся дольше одной пачки. Последней удаляется строка boards:
+ * каскад к этому моменту затрагивает только то, что успели дописать между пачками.
+ */
+@Slf4j
+@Component
+public class ExpiredBoardReaper {
+
+    private static final String FIND_EXPIRED_SQL = """
+            SELECT id, uuid FROM boards
+            WHERE temporary AND expires_at < ?
+            ORDER BY expires_at
+            LIMIT ?
+            """;
+
+    private static final String STILL_EXPIRED = "SELECT 1 FROM boards WHERE id = ? AND temporary AND expires_at < ?";
+
+    private static final String DELETE_BOARD_SQL =
+            "DELETE FROM boards WHERE id = ? AND temporary AND expires_at < ?";
+
+    /**
+     * Таблица доски и столбец, по которому удаляется пачка. ctid — для таблиц без суррогатного id;
+     * у секционированной board_history_events ctid не уникален между секциями, там только id.
+     */
+    private record BoardTable(String name, String key) {
+    }
+
+    // порядок важен: элементы ссылаются на группы, группы удаляются после элементов
+    private static final List<BoardTable> BOARD_TABLES = List.of(
+            new BoardTable("board_history_events", "id"),
+            new BoardTable("board_element_tombstones", "ctid"),
+            new BoardTable("board_snapshots", "id"),
+            new BoardTable("board_elements", "id"),
+            new BoardTable("element_groups", "id"));
+
+    private record ExpiredBoard(long id, UUID uuid) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoardElementCache elementCache;
+    private final MeterRegistry meterRegistry;
+    private final int boardsPerRun;
+    private final int chunkSize;
+
+    private final Counter boardsDeleted;
+    private final Counter failures;
+    private final Timer runTimer;
+
+    public ExpiredBoardReaper(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              BoardElementCache elementCache,
+                              MeterRegistry meterRegistry,
+                              @Value("${board.reaper.boards-per-run:50}") int boardsPerRun,
+                              @Value("${board.reaper.chunk-size:5000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.elementCache = elementCache;
+        this.meterRegistry = meterRegistry;
+        this.boardsPerRun = boardsPerRun;
+        this.chunkSize = chunkSize;
+
+        this.boardsDeleted = Counter.builder("board.reaper.boards.deleted")
+                .description("Удалённые просроченные временные доски")
+                .register(meterRegistry);
+        this.failures = Counter.builder("board.reaper.failures")
+                .description("Доски, которые не удалось удалить за проход")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("board.reaper.run")
+                .description("Длительность прохода очистки")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${board.reaper.interval-ms:300000}",
+            initialDelayString = "${board.reaper.initial-delay-ms:60000}")
+    public void reapExpiredBoards() {
+        runTimer.record(() -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            List<ExpiredBoard> expired = jdbcTemplate.query(FIND_EXPIRED_SQL,
+                    (rs, rowNum) -> new ExpiredBoard(rs.getLong("id"), rs.getObject("uuid", UUID.class)),
+                    now, boardsPerRun);
+            for (ExpiredBoard board : expired) {
+                try {
+                    reap(board, now);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    log.warn("Failed to reap expired board {}: {}", board.uuid(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void reap(ExpiredBoard board, Timestamp now) {
+        elementCache.evict(board.uuid());
+        for (BoardTable table : BOARD_TABLES) {
+            long deleted = deleteInChunks(table, board.id(), now);
+            if (deleted > 0) {
+                meterRegistry.counter("board.reaper.rows.deleted", "table", table.name()).increment(deleted);
+            }
+        }
+        Integer removed = transactionTemplate.execute(status ->
+                jdbcTemplate.update(DELETE_BOARD_SQL, board.id(), now));
+        if (removed != null && removed > 0) {
+            boardsDeleted.increment();
+            log.info("Reaped expired temporary board {}", board.uuid());
+        }
+        elementCache.evict(board.uuid());
+    }
+
+    private long deleteInChunks(BoardTable table, long boardId, Timestamp now) {
+        // каждая пачка заново проверяет срок: если доску продлили, очистка останавливается
+        String sql = "DELETE FROM " + table.name() + " WHERE " + table.key() + " = ANY(ARRAY("
+                + "SELECT " + table.key() + " FROM " + table.name()
+                + " WHERE board_id = ? AND EXISTS (" + STILL_EXPIRED + ") LIMIT ?))";
+        long total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    jdbcTemplate.update(sql, boardId, boardId, now, chunkSize));
+            if (deleted == null || deleted == 0) {
+                return total;
+            }
+            total += deleted;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.service.BoardElementCrdt.Stamp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Гибридные логические часы узла: метки близки к настенному времени, но не убывают
+ * и после получения чужой метки всегда больше неё — даже при расхождении часов узлов.
+ */
+@Component
+public class HybridLogicalClock {
+
+    private final String nodeId;
+
+    private long time;
+    private long counter;
+
+    public HybridLogicalClock(@Value("${board.crdt.node-id:}") String nodeId) {
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public synchronized Stamp now() {
+        long wall = System.currentTimeMillis();
+        if (wall > time) {
+            time = wall;
+            counter = 0;
+        } else {
+            counter++;
+        }
+        return new Stamp(time, counter, nodeId);
+    }
+
+    /**
+     * Учитывает метку, пришедшую с другого узла.
+     */
+    public synchronized void observe(Stamp remote) {
+        long wall = System.currentTimeMillis();
+        long next = Math.max(wall, Math.max(time, remote.time()));
+        if (next == time && next == remote.time()) {
+            counter = Math.max(counter, remote.counter()) + 1;
+        } else if (next == time) {
+            counter++;
+        } else if (next == remote.time()) {
+            counter = remote.counter() + 1;
+        } else {
+            counter = 0;
+        }
+        time = next;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.BoardEventBatch;
+import com.example.demo.service.BoardElementCrdt.Operation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Шина внутри процесса: каждое событие сразу уходит подписчикам пачкой из одного события.
+ * На одном узле подписчик — только сам узел, и он свои пачки пропускает.
+ */
+@Component
+@ConditionalOnProperty(name = "board.event-bus.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBoardEventBus implements BoardEventBus {
+
+    private final HybridLogicalClock clock;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Последняя отправленная ревизия по доске — fromRevision следующей пачки, как у PostgresBoardEventBus. */
+    private final Map<UUID, Long> lastSent = new ConcurrentHashMap<>();
+
+    public InMemoryBoardEventBus(HybridLogicalClock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void publish(BoardElementEvent event, List<Operation> operations) {
+        BoardEventBatch batch = new BoardEventBatch();
+        batch.setOrigin(clock.nodeId());
+        batch.setBoardUuid(event.getBoardUuid());
+        batch.setRevision(event.getRevision());
+        if (event.getRevision() != null) {
+            Long previous = lastSent.put(event.getBoardUuid(), event.getRevision());
+            batch.setFromRevision(previous != null ? previous : event.getRevision() - 1);
+        }
+        batch.setEvents(List.of(event));
+        batch.setOperations(operations);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onBatch(batch);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+/**
+ * Дробные ключи порядка элементов (z-order) в стиле fractional indexing.
+ * Ключ — строка из цифр base62 ("0-9A-Za-z"); порядок — побайтовое сравнение строк,
+ * в базе это COLLATE "C". Ключ никогда не оканчивается на '0', поэтому между
+ * любыми двумя ключами всегда найдётся третий, и перемещение элемента меняет одну строку.
+ */
+public final class OrderKeys {
+
+    private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+
+    // ключи "на верх доски": префикс 'V' больше префикса 'U' у ключей, проставленных миграцией
+    private static final char TOP_PREFIX = 'V';
+    private static final int REVISION_WIDTH = 11;
+    private static final int INDEX_WIDTH = 3;
+    private static final char TERMINATOR = 'V';
+
+    private OrderKeys() {
+    }
+
+    /**
+     * Ключ поверх всех существующих, без чтения базы: ревизия доски растёт монотонно,
+     * а index различает элементы, созданные в одной ревизии (пакет, копирование).
+     * Ключи, полученные через {@link #between}, всегда меньше следующего top-ключа.
+     */
+    public static String top(long revision, int index) {
+        if (index < 0 || index >= BASE * BASE * BASE) {
+            throw new IllegalArgumentException("Too many elements in one revision: " + index);
+        }
+        return TOP_PREFIX + pad(revision, REVISION_WIDTH) + pad(index, INDEX_WIDTH) + TERMINATOR;
+    }
+
+    /**
+     * Ключ строго между lower и upper; null означает отсутствие границы.
+     */
+    public static String between(String lower, String upper) {
+        String a = lower != null ? lower : "";
+        if (upper != null && a.compareTo(upper) >= 0) {
+            throw new IllegalArgumentException("Order keys out of order: " + lower + " >= " + upper);
+        }
+        if (a.endsWith("0") || (upper != null && upper.endsWith("0"))) {
+            throw new IllegalArgumentException("Order key must not end with '0'");
+        }
+        return midpoint(a, upper);
+    }
+
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            // общий префикс (недостающие символы a считаются нулями) переносим как есть
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : DIGITS.charAt(0)) == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+
+    private static String pad(long value, int width) {
+        char[] chars = new char[width];
+        long rest = value;
+        for (int i = width - 1; i >= 0; i--) {
+            chars[i] = DIGITS.charAt((int) (rest % BASE));
+            rest /= BASE;
+        }
+        if (rest != 0 || value < 0) {
+            throw new IllegalArgumentException("Value does not fit order key: " + value);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.BoardEventBatch;
+import com.example.demo.service.BoardElementCrdt.Operation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Шина на PostgreSQL LISTEN/NOTIFY — без отдельного брокера.
+ * <p>
+ * События копятся по доскам и раз в flush-interval-ms уходят одним NOTIFY на доску.
+ * Полезная нагрузка NOTIFY ограничена (8000 байт): в слишком большой пачке кадры перемещения
+ * сначала сворачиваются до последнего кадра каждого элемента, потом выбрасываются, а если и это
+ * не помогает — уходит пачка без событий, только с диапазоном ревизий (truncated).
+ * fromRevision пачки — ревизия предыдущей пачки этого узла по доске: получатель по ней замечает
+ * потерянные пачки. Не отправленная из-за ошибки пачка возвращается в очередь; если там скопилось
+ * больше max-pending-events событий, от доски уйдёт только диапазон ревизий.
+ * Слушает отдельное соединение вне пула: LISTEN держит его постоянно.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "board.event-bus.type", havingValue = "postgres")
+public class PostgresBoardEventBus implements BoardEventBus {
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final String channel;
+    private final int maxPayloadBytes;
+    private final int maxPendingEvents;
+    private final long reconnectDelayMs;
+
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Последняя отправленная ревизия по доске — fromRevision следующей пачки. Пишет только flush. */
+    private final Map<UUID, Long> lastSent;
+
+    private Thread listener;
+    private volatile boolean running;
+
+    public PostgresBoardEventBus(JdbcTemplate jdbcTemplate,
+                                 DataSourceProperties dataSourceProperties,
+                                 ObjectMapper objectMapper,
+                                 HybridLogicalClock clock,
+                                 @Value("${board.event-bus.channel:board_events}") String channel,
+                                 @Value("${board.event-bus.max-payload-bytes:7900}") int maxPayloadBytes,
+                                 @Value("${board.event-bus.max-pending-events:1000}") int maxPendingEvents,
+                                 @Value("${board.event-bus.max-boards:10000}") int maxBoards,
+                                 @Value("${board.event-bus.reconnect-delay-ms:1000}") long reconnectDelayMs) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid event bus channel: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.nodeId = clock.nodeId();
+        this.channel = channel;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxPendingEvents = maxPendingEvents;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.lastSent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > maxBoards;
+            }
+        };
+    }
+
+    /**
+     * Накопленные за тик события доски, их CRDT-операции и диапазон ревизий.
+     * Свёрнутая (truncated) запись хранит только диапазон.
+     */
+    private static final class Pending {
+        private final List<BoardElementEvent> events = new ArrayList<>();
+        private final List<Operation> operations = new ArrayList<>();
+        private Long minRevision;
+        private Long maxRevision;
+        private boolean truncated;
+
+        private void add(BoardElementEvent event, List<Operation> eventOperations) {
+            Long revision = event.getRevision();
+            if (revision != null) {
+                minRevision = minRevision == null ? revision : Math.min(minRevision, revision);
+                maxRevision = maxRevision == null ? revision : Math.max(maxRevision, revision);
+            }
+            if (!truncated) {
+                events.add(event);
+                operations.addAll(eventOperations);
+            }
+        }
+
+        /** Неотправленная пачка перед накопленными после неё событиями. */
+        private Pending prepend(Pending failed) {
+            Pending merged = new Pending();
+            merged.truncated = failed.truncated || truncated;
+            merged.minRevision = min(failed.minRevision, minRevision);
+            merged.maxRevision = failed.maxRevision == null ? maxRevision
+                    : maxRevision == null ? failed.maxRevision : Math.max(failed.maxRevision, maxRevision);
+            if (!merged.truncated) {
+                merged.events.addAll(failed.events);
+                merged.events.addAll(events);
+                merged.operations.addAll(failed.operations);
+                merged.operations.addAll(operations);
+            }
+            return merged;
+        }
+
+        private void truncate() {
+            truncated = true;
+            events.clear();
+            operations.clear();
+        }
+
+        private static Long min(Long a, Long b) {
+            return a == null ? b : b == null ? a : Math.min(a, b);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        listener = new Thread(this::listen, "board-event-bus-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        listener.interrupt();
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+        flush();
+    }
+
+    @Override
+    public void publish(BoardElementEvent event, List<Operation> operations) {
+        pending.compute(event.getBoardUuid(), (uuid, board) -> {
+            Pending result = board != null ? board : new Pending();
+            result.add(event, operations);
+            return result;
+        });
+    }
+
+    @Override
+    public void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Scheduled(fixedDelayString = "${board.event-bus.flush-interval-ms:25}")
+    public synchronized void flush() {
+        for (UUID boardUuid : pending.keySet()) {
+            Pending board = pending.remove(boardUuid);
+            if (board == null || (board.events.isEmpty() && !board.truncated)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.query(NOTIFY_SQL, (RowCallbackHandler) rs -> {
+                }, channel, encode(boardUuid, board));
+                if (board.maxRevision != null) {
+                    lastSent.put(boardUuid, board.maxRevision);
+                }
+            } catch (RuntimeException e) {
+                requeue(boardUuid, board);
+                log.warn("Failed to publish events of board {}, will retry: {}", boardUuid, e.getMessage());
+            }
+        }
+    }
+
+    private void requeue(UUID boardUuid, Pending failed) {
+        pending.compute(boardUuid, (uuid, newer) -> {
+            Pending merged = newer != null ? newer.prepend(failed) : failed;
+            if (merged.events.size() > maxPendingEvents) {
+                // БД долго недоступна: получатели дочитают диапазон ревизий сами
+                merged.truncate();
+            }
+            return merged;
+        });
+    }
+
+    private String encode(UUID boardUuid, Pending board) {
+        BoardEventBatch batch = new BoardEventBatch();
+        batch.setOrigin(nodeId);
+        batch.setBoardUuid(boardUuid);
+        if (board.minRevision != null) {
+            batch.setFromRevision(lastSent.getOrDefault(boardUuid, board.minRevision - 1));
+            batch.setRevision(board.maxRevision);
+        }
+        if (board.truncated) {
+            batch.setTruncated(true);
+            return toJson(batch);
+        }
+
+        batch.setEvents(board.events);
+        batch.setOperations(board.operations);
+        String payload = toJson(batch);
+        if (fits(payload)) {
+            return payload;
+        }
+        // кадры перемещения не записаны в БД и устаревают за доли секунды: важен только последний
+        batch.setEvents(latestFrames(board.events));
+        payload = toJson(batch);
+        if (fits(payload)) {
+            return payload;
+        }
+        batch.setEvents(board.events.stream().filter(event -> event.getRevision() != null).toList());
+        payload = toJson(batch);
+        if (fits(payload)) {
+            return payload;
+        }
+        batch.setEvents(List.of());
+        batch.setOperations(List.of());
+        batch.setTruncated(true);
+        return toJson(batch);
+    }
+
+    /**
+     * События, где из кадров каждого элемента оставлен только последний.
+     */
+    private static List<BoardElementEvent> latestFrames(List<BoardElementEvent> events) {
+        Set<Long> seen = new HashSet<>();
+        List<BoardElementEvent> result = new ArrayList<>(events.size());
+        for (int i = events.size() - 1; i >= 0; i--) {
+            BoardElementEvent event = events.get(i);
+            boolean latest = event.getRevision() != null;
+            for (BoardElementDto dto : event.getUpserts()) {
+                latest |= seen.add(dto.getId());
+            }
+            if (latest) {
+                result.add(event);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private boolean fits(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8).length <= maxPayloadBytes;
+    }
+
+    private String toJson(BoardEventBatch batch) {
+        try {
+            return objectMapper.writeValueAsString(batch);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize board event batch", e);
+        }
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (reconnect) {
+                    // пока соединения не было, чужие пачки терялись
+                    subscribers.forEach(Subscriber::onGap);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Board event bus connection lost: {}", e.getMessage());
+            }
+            reconnect = true;
+            try {
+                Thread.sleep(reconnectDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        BoardEventBatch batch;
+        try {
+            batch = objectMapper.readValue(payload, BoardEventBatch.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed board event batch: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.onBatch(batch);
+            } catch (RuntimeException e) {
+                log.warn("Board event subscriber failed for board {}: {}", batch.getBoardUuid(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+-- История доски секционируется по месяцам created_at:
+-- срок хранения снимается DROP старой секции, а индексы каждой секции остаются небольшими.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования.
+ALTER TABLE board_history_events RENAME TO board_history_events_legacy;
+ALTER TABLE board_history_events_legacy RENAME CONSTRAINT board_history_events_pkey TO board_history_events_legacy_pkey;
+ALTER INDEX idx_history_board_revision RENAME TO idx_history_legacy_board_revision;
+ALTER INDEX idx_history_board_element_id RENAME TO idx_history_legacy_board_element_id;
+
+CREATE TABLE board_history_events (
+    id                 BIGINT      NOT NULL DEFAULT nextval('board_history_events_id_seq'),
+    board_id           BIGINT      NOT NULL REFERENCES boards(id) ON DELETE CASCADE,
+    actor_id           BIGINT REFERENCES users(id),
+    element_id         BIGINT,
+    event_type         VARCHAR(64) NOT NULL,
+    before_state_json  TEXT,
+    after_state_json   TEXT,
+    created_at         TIMESTAMP   NOT NULL DEFAULT now(),
+    state_format       VARCHAR(16) NOT NULL DEFAULT 'SNAPSHOT',
+    revision           BIGINT,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE board_history_events_id_seq OWNED BY board_history_events.id;
+
+-- на случай, если секции впереди не успели создать (см. BoardHistoryRetentionJob)
+CREATE TABLE board_history_events_default PARTITION OF board_history_events DEFAULT;
+
+-- секции board_history_events_pYYYYMM: от самого старого события до двух месяцев вперёд
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE(
+            (SELECT min(created_at) FROM board_history_events_legacy), now()))::date;
+    last_month  DATE := (date_trunc('month', now()) + INTERVAL '2 months')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+                'CREATE TABLE %I PARTITION OF board_history_events FOR VALUES FROM (%L) TO (%L)',
+                'board_history_events_p' || to_char(month_start, 'YYYYMM'),
+                month_start,
+                (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO board_history_events
+    (id, board_id, actor_id, element_id, event_type, before_state_json, after_state_json,
+     created_at, state_format, revision)
+SELECT id, board_id, actor_id, element_id, event_type, before_state_json, after_state_json,
+       created_at, state_format, revision
+FROM board_history_events_legacy;
+
+DROP TABLE board_history_events_legacy;
+
+-- индекс по (board_id, created_at) не нужен: время отсекается секциями, выборки идут по ревизиям
+CREATE INDEX idx_history_board_revision ON board_history_events(board_id, revision);
+CREATE INDEX idx_history_board_element_id ON board_history_events(board_id, element_id, id);
+
+-- Ревизия, раньше которой состояние доски по истории не восстановить (события удалены по сроку хранения),
+-- и докуда история уже сжата
+ALTER TABLE boards
+    ADD COLUMN history_floor_revision     BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN history_compacted_revision BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN history_compacted_at       TIMESTAMP;
@@ -0,0 +1,7 @@
+-- Оптимистичная блокировка элементов: version растёт при каждом изменении строки,
+-- geometry_version / properties_version — значение version при последнем изменении группы полей.
+-- По ним сервер отличает настоящий конфликт от параллельной правки другой группы полей.
+ALTER TABLE board_elements
+    ADD COLUMN version            BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN geometry_version   BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN properties_version BIGINT NOT NULL DEFAULT 0;
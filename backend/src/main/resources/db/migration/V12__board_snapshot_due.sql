@@ -0,0 +1,17 @@
+-- Очередь досок на снимок без перебора всех досок.
+-- last_snapshot_revision — ревизия последнего снимка; snapshot_due пересчитывается при каждой выдаче ревизии
+-- (BoardRevisionRepository) и сбрасывается после снимка. Индекс по выражению с revision сделал бы
+-- каждую выдачу ревизии не-HOT обновлением, а флаг меняет значение лишь дважды за цикл снимка.
+ALTER TABLE boards
+    ADD COLUMN last_snapshot_revision BIGINT  NOT NULL DEFAULT 0,
+    ADD COLUMN snapshot_due           BOOLEAN NOT NULL DEFAULT false;
+
+UPDATE boards b
+SET last_snapshot_revision = s.revision
+FROM (SELECT board_id, max(revision) AS revision FROM board_snapshots GROUP BY board_id) s
+WHERE s.board_id = b.id;
+
+-- 500 — значение board.snapshot.min-changes по умолчанию; при другом пороге флаг поправит следующая ревизия
+UPDATE boards SET snapshot_due = true WHERE revision - last_snapshot_revision >= 500;
+
+CREATE INDEX idx_boards_snapshot_due ON boards(id) WHERE snapshot_due;
@@ -0,0 +1,19 @@
+-- Свойства элементов храним как JSONB: валидируются при записи
+-- и отдаются клиенту как есть, без повторного разбора
+ALTER TABLE board_elements ALTER COLUMN properties_json DROP DEFAULT;
+
+-- Пустые свойства становятся '{}'. Текст, который не разбирается как JSON, клиент и раньше
+-- прочитать не мог: такие свойства тоже сбрасываются в '{}', id элемента попадает в лог миграции
+CREATE FUNCTION pg_temp.properties_to_jsonb(element_id BIGINT, properties TEXT) RETURNS JSONB AS $$
+BEGIN
+    RETURN COALESCE(NULLIF(btrim(properties), ''), '{}')::jsonb;
+EXCEPTION WHEN invalid_text_representation THEN
+    RAISE WARNING 'board_elements %: invalid properties_json replaced with {}', element_id;
+    RETURN '{}'::jsonb;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE board_elements
+    ALTER COLUMN properties_json TYPE JSONB USING pg_temp.properties_to_jsonb(id, properties_json);
+
+ALTER TABLE board_elements ALTER COLUMN properties_json SET DEFAULT '{}'::jsonb;
@@ -0,0 +1,7 @@
+-- История хранит merge-patch'и вместо полных снимков элементов.
+-- Существующие строки остаются полными снимками.
+ALTER TABLE board_history_events
+    ADD COLUMN state_format VARCHAR(16) NOT NULL DEFAULT 'SNAPSHOT';
+
+CREATE INDEX idx_history_board_element_id
+    ON board_history_events(board_id, element_id, id);
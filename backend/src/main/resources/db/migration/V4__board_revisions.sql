@@ -0,0 +1,24 @@
+-- Монотонная ревизия доски: каждое изменение получает следующий номер,
+-- им помечаются изменённые элементы и события истории
+ALTER TABLE boards ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE board_elements ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE board_history_events ADD COLUMN revision BIGINT;
+
+-- уже существующие элементы считаем изменёнными в ревизии 1, чтобы since=0 возвращал всё
+UPDATE board_elements SET revision = 1;
+UPDATE boards SET revision = 1;
+
+-- Удалённые элементы, чтобы переподключившийся клиент узнал об удалении
+CREATE TABLE board_element_tombstones (
+    board_id    BIGINT    NOT NULL REFERENCES boards(id) ON DELETE CASCADE,
+    element_id  BIGINT    NOT NULL,
+    revision    BIGINT    NOT NULL,
+    deleted_at  TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (board_id, element_id)
+);
+
+CREATE INDEX idx_board_elements_board_revision ON board_elements(board_id, revision);
+CREATE INDEX idx_tombstones_board_revision ON board_element_tombstones(board_id, revision);
+CREATE INDEX idx_history_board_revision ON board_history_events(board_id, revision);
@@ -0,0 +1,12 @@
+-- Сжатые снимки всех элементов доски на определённой ревизии.
+-- Холодная загрузка: последний снимок + элементы/надгробия с ревизией больше снимка.
+CREATE TABLE board_snapshots (
+    id             BIGSERIAL PRIMARY KEY,
+    board_id       BIGINT      NOT NULL REFERENCES boards(id) ON DELETE CASCADE,
+    revision       BIGINT      NOT NULL,
+    element_count  INT         NOT NULL,
+    format         VARCHAR(16) NOT NULL,
+    data           BYTEA       NOT NULL,
+    created_at     TIMESTAMP   NOT NULL DEFAULT now(),
+    UNIQUE (board_id, revision)
+);
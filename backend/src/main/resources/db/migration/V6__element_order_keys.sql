@@ -0,0 +1,17 @@
+-- Порядок элементов по дробному ключу: перемещение элемента меняет одну строку.
+-- COLLATE "C" — побайтовое сравнение, как String.compareTo в OrderKeys
+ALTER TABLE board_elements ADD COLUMN order_key TEXT COLLATE "C";
+
+-- существующие элементы: 'U' + номер по z_index в hex + 'V', ниже любых новых ключей ('V...')
+UPDATE board_elements e
+SET order_key = 'U' || lpad(to_hex(r.rn), 11, '0') || 'V'
+FROM (
+    SELECT id, row_number() OVER (PARTITION BY board_id ORDER BY z_index, id) AS rn
+    FROM board_elements
+) r
+WHERE r.id = e.id;
+
+ALTER TABLE board_elements ALTER COLUMN order_key SET NOT NULL;
+
+CREATE INDEX idx_board_elements_board_order ON board_elements(board_id, order_key);
+DROP INDEX idx_board_elements_board_zindex;
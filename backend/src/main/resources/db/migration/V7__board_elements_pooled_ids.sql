@@ -0,0 +1,3 @@
+-- Hibernate берёт идентификаторы элементов пачками по 50 (pooled optimizer),
+-- шаг последовательности должен совпадать с allocationSize
+ALTER SEQUENCE board_elements_id_seq INCREMENT BY 50;
@@ -0,0 +1,6 @@
+-- Точки кистей и стрелок хранятся упакованными (квантование + дельты varint), а не в JSON свойств.
+-- points_lod: упрощённые варианты штриха для мелкого масштаба.
+-- Существующие строки остаются в JSON и перепаковываются при следующей записи свойств.
+ALTER TABLE board_elements
+    ADD COLUMN points_data BYTEA,
+    ADD COLUMN points_lod  BYTEA;
@@ -0,0 +1,2 @@
+-- Поиск просроченных временных досок для фоновой очистки
+CREATE INDEX idx_boards_temporary_expires_at ON boards(expires_at) WHERE temporary;
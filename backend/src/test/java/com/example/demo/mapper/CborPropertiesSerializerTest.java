@@ -0,0 +1,78 @@
+package com.example.demo.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORParser;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CborPropertiesSerializerTest {
+
+    private static final CBORMapper CBOR = new CBORMapper();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static byte[] cbor(String json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = CBOR.createGenerator(out)) {
+            new CborPropertiesSerializer().serialize(json, gen, null);
+        }
+        return out.toByteArray();
+    }
+
+    private static JsonNode decode(String json) throws IOException {
+        return CBOR.readTree(cbor(json));
+    }
+
+    private static ByteBuffer little(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void numericArraysBecomeTypedArrays() throws IOException {
+        JsonNode node = decode("{\"ints\":[1,-2,3,4],\"floats\":[0.5,1,2.25,3],\"doubles\":[0.1,2,3,4]}");
+
+        ByteBuffer ints = little(16).putInt(1).putInt(-2).putInt(3).putInt(4);
+        assertArrayEquals(ints.array(), node.get("ints").binaryValue());
+        ByteBuffer floats = little(16).putFloat(0.5f).putFloat(1).putFloat(2.25f).putFloat(3);
+        assertArrayEquals(floats.array(), node.get("floats").binaryValue());
+        ByteBuffer doubles = little(32).putDouble(0.1).putDouble(2).putDouble(3).putDouble(4);
+        assertArrayEquals(doubles.array(), node.get("doubles").binaryValue());
+    }
+
+    @Test
+    void typedArrayCarriesRfc8746Tag() throws IOException {
+        try (CBORParser parser = CBOR.getFactory().createParser(cbor("[1,2,3,4]"))) {
+            parser.nextToken();
+            assertEquals(78, parser.getCurrentTag());
+        }
+    }
+
+    @Test
+    void mixedAndShortArraysStayPlain() throws IOException {
+        JsonNode node = decode("{\"mixed\":[1,2,3,\"x\",4.5,null,[5,6,7,8]],\"short\":[1,2],"
+                + "\"nested\":{\"a\":{\"b\":[true,false]},\"c\":\"text\"},\"empty\":[]}");
+
+        JsonNode mixed = node.get("mixed");
+        assertEquals(7, mixed.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, mixed.get(i).longValue());
+        }
+        assertEquals("x", mixed.get(3).textValue());
+        assertEquals(4.5, mixed.get(4).doubleValue());
+        assertTrue(mixed.get(5).isNull());
+        assertTrue(mixed.get(6).isBinary());
+        assertEquals(JSON.readTree("[1,2]"), node.get("short"));
+        assertEquals(JSON.readTree("{\"a\":{\"b\":[true,false]},\"c\":\"text\"}"), node.get("nested"));
+        assertEquals(0, node.get("empty").size());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonMergePatchTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static JsonNode json(String text) {
+        try {
+            return JSON.readTree(text.replace('\'', '"'));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(text, e);
+        }
+    }
+
+    private static final List<JsonNode> STATES = List.of(
+            json("{'x':1,'y':2,'properties':{'color':'red','stroke':{'width':2,'dash':[4,2]}}}"),
+            json("{'x':1,'y':3,'properties':{'color':'red','stroke':{'width':3}}}"),
+            json("{'x':5,'properties':{'stroke':{'width':3,'dash':[1]},'text':'hi'}}"),
+            json("{'x':5,'properties':'plain'}"),
+            json("{'x':5,'properties':{'color':'blue'},'label':null}"),
+            json("{}"));
+
+    /**
+     * Документ без полей со значением null: для merge patch null и отсутствие поля неразличимы.
+     */
+    private static JsonNode normalized(JsonNode state) {
+        return JsonMergePatch.apply(json("{}"), JsonMergePatch.diff(json("{}"), state));
+    }
+
+    @Test
+    void diffThenApplyRestoresTarget() {
+        for (JsonNode source : STATES) {
+            for (JsonNode target : STATES) {
+                JsonNode patch = JsonMergePatch.diff(source, target);
+                assertEquals(normalized(target), normalized(JsonMergePatch.apply(source, patch)),
+                        source + " -> " + target);
+            }
+        }
+    }
+
+    @Test
+    void diffOfEqualDocumentsIsEmpty() {
+        for (JsonNode state : STATES) {
+            assertEquals(json("{}"), JsonMergePatch.diff(state, state.deepCopy()));
+        }
+    }
+
+    @Test
+    void diffRemovesFieldsWithNullAndRecursesIntoObjects() {
+        JsonNode patch = JsonMergePatch.diff(STATES.get(0), STATES.get(1));
+
+        assertEquals(json("{'y':3,'properties':{'stroke':{'width':3,'dash':null}}}"), patch);
+        assertEquals(json("{'a':1}"), JsonMergePatch.apply(json("{'a':1,'b':{'c':2}}"), json("{'b':null}")));
+        // null вместо всего документа — удаление
+        assertEquals(NullNode.getInstance(), JsonMergePatch.diff(STATES.get(0), null));
+    }
+
+    @Test
+    void applyDoesNotModifyTarget() {
+        JsonNode target = STATES.get(0).deepCopy();
+        JsonMergePatch.apply(target, json("{'x':9,'properties':{'color':null}}"));
+
+        assertEquals(STATES.get(0), target);
+    }
+
+    @Test
+    void composeMatchesSequentialApply() {
+        for (JsonNode a : STATES) {
+            for (JsonNode b : STATES) {
+                for (JsonNode c : STATES) {
+                    JsonNode first = JsonMergePatch.diff(a, b);
+                    JsonNode second = JsonMergePatch.diff(b, c);
+                    if (!JsonMergePatch.canCompose(first, second)) {
+                        continue;
+                    }
+                    JsonNode composed = JsonMergePatch.compose(first, second);
+                    assertEquals(JsonMergePatch.apply(JsonMergePatch.apply(a, first), second),
+                            JsonMergePatch.apply(a, composed), a + " -> " + b + " -> " + c);
+                }
+            }
+        }
+    }
+
+    @Test
+    void composedReversePatchUndoesSeries() {
+        // так сжатие склеивает обратные патчи серии: в обратном порядке
+        JsonNode reverse = null;
+        for (int i = 0; i < 3; i++) {
+            JsonNode before = JsonMergePatch.diff(STATES.get(i + 1), STATES.get(i));
+            reverse = JsonMergePatch.compose(before, reverse);
+        }
+
+        assertEquals(normalized(STATES.get(0)), JsonMergePatch.apply(STATES.get(3), reverse));
+    }
+
+    @Test
+    void composeKeepsRemovalFollowedBySet() {
+        JsonNode composed = JsonMergePatch.compose(json("{'a':null,'b':1}"), json("{'a':2,'c':null}"));
+
+        assertEquals(json("{'a':2,'b':1,'c':null}"), composed);
+        assertEquals(json("{'a':2,'b':1}"), JsonMergePatch.apply(json("{'a':{'x':1},'c':3}"), composed));
+    }
+
+    @Test
+    void objectPatchAfterRemovalCannotBeComposed() {
+        JsonNode removal = json("{'properties':{'stroke':null}}");
+        JsonNode objectPatch = json("{'properties':{'stroke':{'width':1}}}");
+        assertFalse(JsonMergePatch.canCompose(removal, objectPatch));
+        assertFalse(JsonMergePatch.canCompose(json("{'p':'plain'}"), json("{'p':{'a':1}}")));
+
+        assertTrue(JsonMergePatch.canCompose(objectPatch, removal));
+        assertTrue(JsonMergePatch.canCompose(json("{'p':{'a':1}}"), json("{'p':{'b':{'c':1}}}")));
+        assertTrue(JsonMergePatch.canCompose(null, objectPatch));
+    }
+}
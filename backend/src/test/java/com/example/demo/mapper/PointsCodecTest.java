@@ -0,0 +1,98 @@
+package com.example.demo.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PointsCodecTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static double[] points(JsonNode properties) {
+        JsonNode points = properties.get("points");
+        double[] coords = new double[points.size()];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = points.get(i).doubleValue();
+        }
+        return coords;
+    }
+
+    @Test
+    void roundTripQuantizesCoordinates() {
+        double[] coords = {0, 0, 10.004, -3.5, -1e6, 2e6, 12.345, 0.006, -0.004, 7};
+
+        double[] decoded = PointsCodec.decode(PointsCodec.encode(coords, 100));
+
+        assertArrayEquals(new double[]{0, 0, 10, -3.5, -1e6, 2e6, 12.35, 0.01, 0, 7}, decoded, 1e-9);
+    }
+
+    @Test
+    void smallDeltasTakeOneByteEach() {
+        // шаг в пределах ±0.63 — zigzag-разность меньше 128
+        double[] coords = new double[200];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = (i % 2 == 0 ? 0.5 : -0.6) * (i / 2 % 2);
+        }
+
+        byte[] data = PointsCodec.encode(coords, 100);
+
+        // quantization, количество чисел (200 — два байта), по байту на разность
+        assertEquals(1 + 2 + coords.length, data.length);
+        assertArrayEquals(coords, PointsCodec.decode(data), 1e-9);
+    }
+
+    @Test
+    void largeAndNegativeDeltasSurviveZigzag() {
+        double[] coords = {Integer.MAX_VALUE, Integer.MIN_VALUE, -Integer.MAX_VALUE, 1, 0, 0};
+
+        assertArrayEquals(coords, PointsCodec.decode(PointsCodec.encode(coords, 100)), 1e-6);
+    }
+
+    @Test
+    void spliceIntoAppendsPointsAsLastField() throws IOException {
+        byte[] data = PointsCodec.encode(new double[]{1, -1.5, 0.05, 3}, 100);
+
+        String json = PointsCodec.spliceInto("{\"color\":\"red\",\"width\":2}", data);
+
+        assertEquals("{\"color\":\"red\",\"width\":2,\"points\":[1,-1.5,0.05,3]}", json);
+        assertEquals("{\"points\":[1,-1.5,0.05,3]}", PointsCodec.spliceInto(null, data));
+        assertEquals("{\"points\":[1,-1.5,0.05,3]}", PointsCodec.spliceInto(" { } ", data));
+        // шаг не степени десяти печатается через double
+        JsonNode binary = JSON.readTree(PointsCodec.spliceInto("{}", PointsCodec.encode(new double[]{0.25, -3}, 64)));
+        assertArrayEquals(new double[]{0.25, -3}, points(binary), 1e-9);
+    }
+
+    @Test
+    void replacePointsSwapsOnlyThePoints() throws IOException {
+        String json = PointsCodec.spliceInto("{\"text\":\"a \\\"points\\\":[ b\"}",
+                PointsCodec.encode(new double[]{0, 0, 1, 1, 2, 2}, 100));
+
+        String replaced = PointsCodec.replacePoints(json, PointsCodec.encode(new double[]{0, 0, 2, 2}, 100));
+
+        JsonNode node = JSON.readTree(replaced);
+        assertEquals("a \"points\":[ b", node.get("text").textValue());
+        assertArrayEquals(new double[]{0, 0, 2, 2}, points(node), 1e-9);
+        String withoutPoints = "{\"color\":\"red\"}";
+        assertSame(withoutPoints, PointsCodec.replacePoints(withoutPoints, new byte[]{100, 0}));
+    }
+
+    @Test
+    void selectLevelPicksCoarsestWithinTolerance() {
+        byte[] fine = PointsCodec.encode(new double[]{0, 0, 1, 1, 2, 0, 3, 1}, 100);
+        byte[] coarse = PointsCodec.encode(new double[]{0, 0, 3, 1}, 100);
+        // допуски в шагах квантования: 2 и 8 единиц доски
+        byte[] lod = PointsCodec.encodeLevels(new long[]{200, 800}, new byte[][]{fine, coarse});
+
+        assertArrayEquals(coarse, PointsCodec.selectLevel(lod, 10));
+        assertArrayEquals(coarse, PointsCodec.selectLevel(lod, 8));
+        assertArrayEquals(fine, PointsCodec.selectLevel(lod, 5));
+        assertNull(PointsCodec.selectLevel(lod, 1));
+    }
+}
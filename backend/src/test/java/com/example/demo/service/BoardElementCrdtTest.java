@@ -0,0 +1,178 @@
+package com.example.demo.service;
+
+import com.example.demo.service.BoardElementCrdt.Operation;
+import com.example.demo.service.BoardElementCrdt.Stamp;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardElementCrdtTest {
+
+    private static Stamp stamp(long time, String node) {
+        return new Stamp(time, 0, node);
+    }
+
+    private static Map<String, JsonNode> fields(Object... keyValues) {
+        Map<String, JsonNode> fields = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            Object value = keyValues[i + 1];
+            fields.put((String) keyValues[i], value == null ? NullNode.getInstance()
+                    : value instanceof Integer number ? IntNode.valueOf(number)
+                    : TextNode.valueOf(value.toString()));
+        }
+        return fields;
+    }
+
+    /**
+     * Видимое состояние реплики: порядок элементов и значения их полей.
+     */
+    private static Map<Long, Map<String, JsonNode>> state(BoardElementCrdt crdt) {
+        Map<Long, Map<String, JsonNode>> state = new LinkedHashMap<>();
+        for (Long id : crdt.visibleIds()) {
+            state.put(id, crdt.fields(id));
+        }
+        return state;
+    }
+
+    private static BoardElementCrdt replay(List<Operation> operations) {
+        BoardElementCrdt crdt = new BoardElementCrdt();
+        operations.forEach(crdt::apply);
+        return crdt;
+    }
+
+    private static List<Operation> history() {
+        List<Operation> ops = new ArrayList<>();
+        ops.add(Operation.add(1, stamp(1, "a"), Stamp.CREATED, fields("x", 0, "orderKey", "a0", "properties.color", "red")));
+        ops.add(Operation.add(2, stamp(2, "b"), Stamp.CREATED, fields("x", 5, "orderKey", "Zz")));
+        ops.add(Operation.add(3, stamp(2, "a"), Stamp.CREATED, fields("x", 9, "orderKey", "a0")));
+        // параллельные записи одного поля: побеждает большая метка, при равном времени — узел
+        ops.add(Operation.set(1, stamp(3, "a"), fields("x", 10)));
+        ops.add(Operation.set(1, stamp(3, "b"), fields("x", 20)));
+        ops.add(Operation.set(1, stamp(4, "a"), fields("properties.color", null, "properties.width", 2)));
+        ops.add(Operation.set(2, stamp(5, "c"), fields("orderKey", "a5")));
+        ops.add(Operation.remove(3, stamp(6, "b"), Set.of(Stamp.CREATED)));
+        // правка удалённого элемента сохраняется, но не воскрешает его
+        ops.add(Operation.set(3, stamp(7, "c"), fields("x", 99)));
+        return ops;
+    }
+
+    @Test
+    void replicasConvergeForAnyDeliveryOrder() {
+        List<Operation> ops = history();
+        Map<Long, Map<String, JsonNode>> expected = state(replay(ops));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            List<Operation> shuffled = new ArrayList<>(ops);
+            Collections.shuffle(shuffled, random);
+            assertEquals(expected, state(replay(shuffled)), "order " + shuffled);
+        }
+
+        assertEquals(List.of(1L, 2L), List.copyOf(expected.keySet()));
+        assertEquals(fields("x", 20, "orderKey", "a0", "properties.width", 2), expected.get(1L));
+        assertEquals(fields("x", 5, "orderKey", "a5"), expected.get(2L));
+    }
+
+    @Test
+    void duplicateDeliveryDoesNotChangeState() {
+        List<Operation> ops = history();
+        List<Operation> twice = new ArrayList<>(ops);
+        twice.addAll(ops);
+        Collections.shuffle(twice, new Random(7));
+
+        assertEquals(state(replay(ops)), state(replay(twice)));
+    }
+
+    @Test
+    void addConcurrentWithRemoveSurvives() {
+        Stamp first = stamp(1, "a");
+        Stamp readd = stamp(3, "b");
+        Operation add = Operation.add(1, first, first, fields("x", 1));
+        // a удаляет, видя только первую метку; b параллельно добавляет элемент с новой меткой
+        Operation remove = Operation.remove(1, stamp(2, "a"), Set.of(first));
+        Operation concurrentAdd = Operation.add(1, readd, readd, fields("x", 2));
+
+        for (List<Operation> order : List.of(
+                List.of(add, remove, concurrentAdd),
+                List.of(add, concurrentAdd, remove),
+                List.of(concurrentAdd, remove, add))) {
+            BoardElementCrdt crdt = replay(order);
+            assertTrue(crdt.contains(1), "order " + order);
+            assertEquals(Set.of(readd), crdt.liveTags(1));
+            assertEquals(fields("x", 2), crdt.fields(1));
+        }
+    }
+
+    @Test
+    void removeOfObservedTagsWinsOverEarlierAdd() {
+        BoardElementCrdt crdt = new BoardElementCrdt();
+        crdt.apply(Operation.remove(1, Stamp.ofRevision(5), Set.of(Stamp.CREATED)));
+        // загрузка из БД, прочитанная до удаления, приходит позже
+        crdt.apply(Operation.add(1, Stamp.ofRevision(4), Stamp.CREATED, fields("x", 1)));
+
+        assertFalse(crdt.contains(1));
+        assertEquals(Map.of(), crdt.fields(1));
+        assertEquals(List.of(), crdt.visibleIds());
+    }
+
+    @Test
+    void mergeIsIdempotentCommutativeAndMatchesReplay() {
+        List<Operation> ops = history();
+        BoardElementCrdt left = replay(ops.subList(0, 5));
+        BoardElementCrdt right = replay(ops.subList(3, ops.size()));
+
+        BoardElementCrdt leftThenRight = new BoardElementCrdt();
+        leftThenRight.merge(left);
+        leftThenRight.merge(right);
+        BoardElementCrdt rightThenLeft = new BoardElementCrdt();
+        rightThenLeft.merge(right);
+        rightThenLeft.merge(left);
+
+        Map<Long, Map<String, JsonNode>> expected = state(replay(ops));
+        assertEquals(expected, state(leftThenRight));
+        assertEquals(expected, state(rightThenLeft));
+
+        leftThenRight.merge(right);
+        leftThenRight.merge(leftThenRight);
+        assertEquals(expected, state(leftThenRight));
+    }
+
+    @Test
+    void operationsSurviveJsonRoundTrip() throws Exception {
+        // так операции едут между узлами в BoardEventBatch
+        ObjectMapper mapper = new ObjectMapper();
+        List<Operation> ops = history();
+        String json = mapper.writeValueAsString(ops);
+        List<Operation> decoded = mapper.readValue(json, new TypeReference<List<Operation>>() {
+        });
+
+        assertEquals(state(replay(ops)), state(replay(decoded)));
+    }
+
+    @Test
+    void visibleIdsFollowOrderKeyThenId() {
+        BoardElementCrdt crdt = new BoardElementCrdt();
+        crdt.apply(Operation.add(5, stamp(1, "a"), Stamp.CREATED, fields("orderKey", "b")));
+        crdt.apply(Operation.add(3, stamp(1, "a"), Stamp.CREATED, fields("orderKey", "b")));
+        crdt.apply(Operation.add(4, stamp(1, "a"), Stamp.CREATED, fields("orderKey", "a")));
+        crdt.apply(Operation.add(9, stamp(1, "a"), Stamp.CREATED, fields()));
+
+        assertEquals(List.of(9L, 4L, 3L, 5L), crdt.visibleIds());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardChangesDto;
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.dto.BoardElementEvent;
+import com.example.demo.dto.BoardEventBatch;
+import com.example.demo.model.BoardHistoryEvent.EventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Два узла на одной шине в памяти: a публикует, b получает через BoardEventRelay.
+ */
+class BoardEventRelayTest {
+
+    private static final UUID BOARD = UUID.randomUUID();
+
+    private final List<BoardElementEvent> published = new ArrayList<>();
+    private BoardElementService boardElementService;
+    private InMemoryBoardEventBus bus;
+    private BoardEventRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        boardElementService = mock(BoardElementService.class);
+        when(boardElementService.getChangesSince(any(), anyLong())).thenAnswer(invocation -> {
+            BoardChangesDto changes = new BoardChangesDto();
+            changes.setRevision(10);
+            changes.setUpserts(List.of(element(1, 10)));
+            changes.setDeletedIds(List.of());
+            return changes;
+        });
+        @SuppressWarnings("unchecked")
+        ObjectProvider<BoardCrdtReplicas> noReplicas = mock(ObjectProvider.class);
+
+        bus = new InMemoryBoardEventBus(new HybridLogicalClock("a"));
+        relay = new BoardEventRelay(bus, event -> published.add((BoardElementEvent) event), boardElementService,
+                new BoardElementCache(10, 60_000, 512), noReplicas, new HybridLogicalClock("b"), 100);
+    }
+
+    private static BoardElementDto element(long id, long revision) {
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(id);
+        dto.setRevision(revision);
+        dto.setOrderKey("a0");
+        return dto;
+    }
+
+    private static BoardElementEvent committed(long revision) {
+        return BoardElementEvent.upserted(BOARD, EventType.ELEMENT_UPDATED, revision, List.of(element(1, revision)));
+    }
+
+    private static BoardElementEvent frame() {
+        return BoardElementEvent.upserted(BOARD, EventType.ELEMENT_UPDATED, null, List.of(element(1, 1)));
+    }
+
+    private static BoardEventBatch batch(String origin, Long fromRevision, Long revision, BoardElementEvent... events) {
+        BoardEventBatch batch = new BoardEventBatch();
+        batch.setOrigin(origin);
+        batch.setBoardUuid(BOARD);
+        batch.setFromRevision(fromRevision);
+        batch.setRevision(revision);
+        batch.setEvents(List.of(events));
+        return batch;
+    }
+
+    @Test
+    void deliversEventsOfOtherNodeAsRemote() {
+        bus.publish(committed(1));
+        bus.publish(frame());
+        bus.publish(committed(2));
+
+        assertEquals(3, published.size());
+        assertTrue(published.stream().allMatch(BoardElementEvent::isRemote));
+        verify(boardElementService, never()).getChangesSince(any(), anyLong());
+    }
+
+    @Test
+    void revisionsTakenByOtherWritersAreNotAGap() {
+        // ревизии 2..4 ушли на отложенную запись геометрии и правки других узлов
+        bus.publish(committed(1));
+        bus.publish(committed(5));
+
+        assertEquals(2, published.size());
+        verify(boardElementService, never()).getChangesSince(any(), anyLong());
+    }
+
+    @Test
+    void lostBatchIsReloadedFromDatabase() {
+        bus.publish(committed(1));
+        published.clear();
+
+        // пачка a с ревизиями 2..3 потерялась, следующая ссылается на неё
+        relay.onBatch(batch("a", 3L, 4L, committed(4), frame()));
+
+        verify(boardElementService).getChangesSince(BOARD, 1);
+        assertEquals(2, published.size());
+        assertEquals(10L, published.get(0).getRevision());
+        assertEquals(EventType.ELEMENT_BATCH, published.get(0).getType());
+        // из самой пачки — только кадр перемещения
+        assertEquals(null, published.get(1).getRevision());
+    }
+
+    @Test
+    void truncatedBatchIsReadFromDatabase() {
+        relay.onBatch(batch("a", 7L, 9L));
+        BoardEventBatch truncated = batch("a", 9L, 12L);
+        truncated.setTruncated(true);
+
+        relay.onBatch(truncated);
+
+        verify(boardElementService).getChangesSince(BOARD, 9);
+        assertEquals(1, published.size());
+        assertTrue(published.get(0).isRemote());
+    }
+
+    @Test
+    void overlappingBatchIsNotAGap() {
+        relay.onBatch(batch("a", 4L, 6L, committed(6)));
+        // узел a перезапустился и начал цепочку заново
+        relay.onBatch(batch("a", 4L, 5L, committed(5)));
+
+        verify(boardElementService, never()).getChangesSince(any(), anyLong());
+        assertEquals(2, published.size());
+    }
+
+    @Test
+    void continuityIsTrackedPerNode() {
+        relay.onBatch(batch("a", 0L, 1L, committed(1)));
+        relay.onBatch(batch("c", 1L, 2L, committed(2)));
+        relay.onBatch(batch("a", 1L, 3L, committed(3)));
+
+        verify(boardElementService, never()).getChangesSince(any(), anyLong());
+        assertEquals(3, published.size());
+    }
+
+    @Test
+    void connectionGapResetsContinuity() {
+        relay.onBatch(batch("a", 0L, 1L, committed(1)));
+        relay.onGap();
+        relay.onBatch(batch("a", 5L, 6L, committed(6)));
+
+        verify(boardElementService, never()).getChangesSince(any(), anyLong());
+    }
+
+    @Test
+    void ownBatchesAreSkipped() {
+        relay.onBatch(batch("b", 0L, 1L, committed(1)));
+
+        assertEquals(List.of(), published);
+    }
+}
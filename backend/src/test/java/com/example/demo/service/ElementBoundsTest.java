@@ -0,0 +1,52 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElementBoundsTest {
+
+    private static void assertBounds(ElementBounds expected, ElementBounds actual) {
+        assertEquals(expected.minX(), actual.minX(), 1e-9, "minX " + actual);
+        assertEquals(expected.minY(), actual.minY(), 1e-9, "minY " + actual);
+        assertEquals(expected.maxX(), actual.maxX(), 1e-9, "maxX " + actual);
+        assertEquals(expected.maxY(), actual.maxY(), 1e-9, "maxY " + actual);
+    }
+
+    @Test
+    void unrotatedBoundsFollowSizeSign() {
+        assertBounds(new ElementBounds(10, 20, 110, 70), ElementBounds.of(10, 20, 100, 50, 0));
+        assertBounds(new ElementBounds(10, 20, 110, 70), ElementBounds.of(10, 20, 100, 50, 360));
+        // отрицательные размеры — штрих, нарисованный влево-вверх
+        assertBounds(new ElementBounds(-90, -30, 10, 20), ElementBounds.of(10, 20, -100, -50, 0));
+    }
+
+    @Test
+    void rotationIsAroundTopLeftCorner() {
+        // 90° по часовой (ось y вниз): прямоугольник уходит влево от (x, y)
+        assertBounds(new ElementBounds(-50, 0, 0, 100), ElementBounds.of(0, 0, 100, 50, 90));
+        assertBounds(new ElementBounds(-100, -50, 0, 0), ElementBounds.of(0, 0, 100, 50, 180));
+        assertBounds(new ElementBounds(0, -100, 50, 0), ElementBounds.of(0, 0, 100, 50, -90));
+    }
+
+    @Test
+    void rotatedBoundsCoverAllCorners() {
+        double half = Math.sqrt(2) / 2;
+        ElementBounds bounds = ElementBounds.of(10, 10, 100, 100, 45);
+
+        assertBounds(new ElementBounds(10 - 100 * half, 10, 10 + 100 * half, 10 + 200 * half), bounds);
+    }
+
+    @Test
+    void intersectsIncludesTouchingEdges() {
+        ElementBounds box = new ElementBounds(0, 0, 10, 10);
+
+        assertTrue(box.intersects(new ElementBounds(10, 10, 20, 20)));
+        assertTrue(box.intersects(new ElementBounds(-5, 2, 15, 3)));
+        assertTrue(box.intersects(new ElementBounds(2, 2, 3, 3)));
+        assertFalse(box.intersects(new ElementBounds(10.01, 0, 20, 10)));
+        assertFalse(box.intersects(new ElementBounds(0, -20, 10, -0.01)));
+    }
+}
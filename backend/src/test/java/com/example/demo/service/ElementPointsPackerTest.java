@@ -0,0 +1,110 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BoardElementDto;
+import com.example.demo.mapper.PointsCodec;
+import com.example.demo.model.BoardElement.ElementType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElementPointsPackerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ElementPointsPacker packer = new ElementPointsPacker(objectMapper, 100, 0, new double[]{8, 2}, 32, 0.5);
+
+    /**
+     * Окружность радиуса 100 из count точек с дрожанием руки в пару сотых.
+     */
+    private static double[] circle(int count) {
+        double[] coords = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            double jitter = (i % 3 - 1) * 0.02;
+            coords[2 * i] = Math.round((100 + jitter) * Math.cos(angle) * 100) / 100.0;
+            coords[2 * i + 1] = Math.round((100 + jitter) * Math.sin(angle) * 100) / 100.0;
+        }
+        return coords;
+    }
+
+    private ObjectNode properties(double[] coords) {
+        ObjectNode properties = objectMapper.createObjectNode().put("color", "red");
+        ArrayNode points = properties.putArray("points");
+        for (double c : coords) {
+            points.add(c);
+        }
+        return properties;
+    }
+
+    private int pointCount(BoardElementDto dto) throws IOException {
+        JsonNode points = objectMapper.readTree(dto.getProperties()).get("points");
+        return points.size() / 2;
+    }
+
+    @Test
+    void simplifyDropsCollinearPointsAndKeepsCorners() {
+        double[] line = {0, 0, 1, 1, 2, 2, 3, 3, 4, 4};
+        assertArrayEquals(new double[]{0, 0, 4, 4}, ElementPointsPacker.simplify(line, 0.1));
+
+        double[] zigzag = {0, 0, 1, 5, 2, 0, 3, 5, 4, 0};
+        assertArrayEquals(zigzag, ElementPointsPacker.simplify(zigzag, 1));
+        // ошибка упрощения не превышает допуска
+        assertArrayEquals(new double[]{0, 0, 4, 0}, ElementPointsPacker.simplify(new double[]{0, 0, 2, 0.4, 4, 0}, 0.5));
+    }
+
+    @Test
+    void packStripsPointsAndBuildsCoarserLevels() throws IOException {
+        double[] coords = circle(400);
+
+        ElementPointsPacker.Packed packed = packer.pack(ElementType.BRUSH, properties(coords));
+
+        assertEquals("{\"color\":\"red\"}", packed.propertiesJson());
+        assertArrayEquals(coords, PointsCodec.decode(packed.points()), 1e-9);
+        assertNotNull(packed.lod());
+
+        byte[] fine = PointsCodec.selectLevel(packed.lod(), 2);
+        byte[] coarse = PointsCodec.selectLevel(packed.lod(), 8);
+        assertNotNull(fine);
+        assertNotNull(coarse);
+        int finePoints = PointsCodec.decode(fine).length / 2;
+        int coarsePoints = PointsCodec.decode(coarse).length / 2;
+        assertTrue(coarsePoints < finePoints && finePoints < 400, coarsePoints + " < " + finePoints + " < 400");
+    }
+
+    @Test
+    void shortStrokesAndOtherTypesHaveNoLevels() {
+        assertNull(packer.pack(ElementType.BRUSH, properties(circle(20))).lod());
+
+        ElementPointsPacker.Packed shape = packer.pack(ElementType.SHAPE, properties(circle(400)));
+        assertNull(shape.points());
+        assertTrue(shape.propertiesJson().contains("\"points\""));
+    }
+
+    @Test
+    void forScalePicksLevelByScreenError() throws IOException {
+        ElementPointsPacker.Packed packed = packer.pack(ElementType.BRUSH, properties(circle(400)));
+        BoardElementDto dto = new BoardElementDto();
+        dto.setId(1L);
+        dto.setProperties(PointsCodec.spliceInto(packed.propertiesJson(), packed.points()));
+        dto.setPointsLod(packed.lod());
+
+        // 1:1 — ошибка 2 единицы заметна, отдаётся исходный штрих
+        assertSame(dto, packer.forScale(dto, 1));
+        BoardElementDto medium = packer.forScale(dto, 0.2);
+        BoardElementDto far = packer.forScale(dto, 0.01);
+
+        assertTrue(pointCount(far) < pointCount(medium) && pointCount(medium) < 400);
+        assertEquals("red", objectMapper.readTree(far.getProperties()).get("color").textValue());
+        assertEquals(400, pointCount(dto), "исходный DTO не меняется");
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ElementSpatialIndexTest {
+
+    private final ElementSpatialIndex index = new ElementSpatialIndex(100);
+
+    private Set<Long> query(double minX, double minY, double maxX, double maxY) {
+        return Set.copyOf(index.query(new ElementBounds(minX, minY, maxX, maxY)));
+    }
+
+    @Test
+    void findsElementsInAllCellsTheyCover() {
+        index.put(1L, ElementBounds.of(50, 50, 200, 20, 0));
+        index.put(2L, ElementBounds.of(-150, -150, 10, 10, 0));
+
+        assertEquals(Set.of(1L), query(220, 40, 260, 80));
+        assertEquals(Set.of(2L), query(-160, -160, -100, -100));
+        assertEquals(Set.of(), query(300, 300, 400, 400));
+        // ячейка та же, но прямоугольники не пересекаются
+        assertEquals(Set.of(), query(60, 80, 90, 95));
+    }
+
+    @Test
+    void rotatedElementIsFoundByItsRotatedBounds() {
+        // после поворота на 90° элемент лежит левее точки (x, y)
+        index.put(1L, ElementBounds.of(500, 500, 300, 20, 90));
+
+        assertEquals(Set.of(), query(510, 500, 790, 520));
+        assertEquals(Set.of(1L), query(470, 700, 490, 780));
+    }
+
+    @Test
+    void oversizedElementsAreAlwaysChecked() {
+        // 100 × 100 ячеек — больше предела, элемент хранится вне сетки
+        index.put(1L, ElementBounds.of(-5000, -5000, 10000, 10000, 0));
+        index.put(2L, ElementBounds.of(0, 0, 10, 10, 0));
+
+        assertEquals(Set.of(1L, 2L), query(0, 0, 5, 5));
+        assertEquals(Set.of(1L), query(4000, 4000, 4100, 4100));
+        assertEquals(Set.of(), query(6000, 6000, 6100, 6100));
+
+        // стал обычным: снова в сетке, старая запись не мешает
+        index.put(1L, ElementBounds.of(4000, 4000, 50, 50, 0));
+        assertEquals(Set.of(2L), query(0, 0, 5, 5));
+        assertEquals(Set.of(1L), query(4000, 4000, 4100, 4100));
+    }
+
+    @Test
+    void hugeCoordinatesDoNotOverflowCellRange() {
+        // ячейки таких координат вышли бы за пределы long
+        index.put(1L, ElementBounds.of(1e300, 1e300, 10, 10, 0));
+        index.put(2L, ElementBounds.of(-1e300, 0, 1e300, 10, 0));
+        index.put(3L, ElementBounds.of(Double.MAX_VALUE / 2, -Double.MAX_VALUE / 2, 1, 1, 0));
+        index.put(4L, ElementBounds.of(0, 0, 10, 10, 0));
+
+        assertEquals(Set.of(1L), query(1e300, 1e300, 1e300 + 1, 1e300 + 1));
+        assertEquals(Set.of(2L, 4L), query(0, 0, 5, 5));
+        assertEquals(Set.of(1L, 2L, 3L, 4L), query(-Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE));
+
+        index.remove(1L);
+        index.remove(3L);
+        assertEquals(Set.of(2L, 4L), query(-Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE));
+    }
+
+    @Test
+    void movedAndRemovedElementsLeaveNoTraces() {
+        index.put(1L, ElementBounds.of(0, 0, 50, 50, 0));
+        index.put(1L, ElementBounds.of(1000, 1000, 50, 50, 0));
+
+        assertEquals(Set.of(), query(0, 0, 60, 60));
+        assertEquals(Set.of(1L), query(1000, 1000, 1010, 1010));
+
+        index.remove(1L);
+        index.remove(2L);
+        assertEquals(Set.of(), query(-10000, -10000, 10000, 10000));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomBoard() {
+        Random random = new Random(11);
+        Map<Long, ElementBounds> all = new HashMap<>();
+        for (long id = 0; id < 500; id++) {
+            double size = random.nextDouble() < 0.02 ? 8000 : 5 + random.nextDouble() * 300;
+            ElementBounds bounds = ElementBounds.of(random.nextDouble() * 8000 - 4000, random.nextDouble() * 8000 - 4000,
+                    size, size * (0.2 + random.nextDouble()), random.nextDouble() * 360);
+            all.put(id, bounds);
+            index.put(id, bounds);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            double w = random.nextDouble() < 0.1 ? 20000 : 50 + random.nextDouble() * 1500;
+            ElementBounds viewport = ElementBounds.of(random.nextDouble() * 8000 - 4000,
+                    random.nextDouble() * 8000 - 4000, w, w * 0.6, 0);
+            Set<Long> expected = new HashSet<>();
+            all.forEach((id, bounds) -> {
+                if (bounds.intersects(viewport)) {
+                    expected.add(id);
+                }
+            });
+            List<Long> actual = index.query(viewport);
+            assertEquals(expected.size(), actual.size(), "duplicates in " + viewport);
+            assertEquals(expected, Set.copyOf(actual), viewport.toString());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import com.example.demo.service.BoardElementCrdt.Stamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HybridLogicalClockTest {
+
+    @Test
+    void stampsStrictlyIncrease() {
+        HybridLogicalClock clock = new HybridLogicalClock("a");
+        Stamp previous = clock.now();
+        for (int i = 0; i < 10_000; i++) {
+            Stamp next = clock.now();
+            assertTrue(next.compareTo(previous) > 0, next + " after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void stampAfterObservingFutureRemoteIsLater() {
+        HybridLogicalClock clock = new HybridLogicalClock("a");
+        // часы другого узла убежали на час вперёд
+        Stamp remote = new Stamp(System.currentTimeMillis() + 3_600_000, 7, "b");
+
+        clock.observe(remote);
+        Stamp local = clock.now();
+
+        assertTrue(local.compareTo(remote) > 0);
+        assertEquals(remote.time(), local.time());
+    }
+
+    @Test
+    void causalityIsPreservedAcrossNodes() {
+        HybridLogicalClock a = new HybridLogicalClock("a");
+        HybridLogicalClock b = new HybridLogicalClock("b");
+
+        Stamp sent = a.now();
+        b.observe(sent);
+        Stamp reply = b.now();
+        a.observe(reply);
+        Stamp next = a.now();
+
+        assertTrue(reply.compareTo(sent) > 0);
+        assertTrue(next.compareTo(reply) > 0);
+    }
+
+    @Test
+    void equalTimeAndCounterAreOrderedByNode() {
+        Stamp a = new Stamp(10, 1, "a");
+        Stamp b = new Stamp(10, 1, "b");
+
+        assertTrue(a.compareTo(b) < 0);
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    void revisionStampsAreOrderedByRevisionAndOlderThanClockStamps() {
+        Stamp created = Stamp.CREATED;
+        Stamp r1 = Stamp.ofRevision(1);
+        Stamp r2 = Stamp.ofRevision(2);
+
+        assertTrue(created.compareTo(r1) < 0);
+        assertTrue(r1.compareTo(r2) < 0);
+        assertEquals(Stamp.ofRevision(2), r2);
+        assertTrue(r2.compareTo(new HybridLogicalClock("a").now()) < 0);
+    }
+
+    @Test
+    void blankNodeIdIsReplacedByRandomOne() {
+        HybridLogicalClock first = new HybridLogicalClock("");
+        HybridLogicalClock second = new HybridLogicalClock(" ");
+
+        assertFalse(first.nodeId().isBlank());
+        assertNotEquals(first.nodeId(), second.nodeId());
+        assertEquals("node-1", new HybridLogicalClock("node-1").nodeId());
+    }
+}
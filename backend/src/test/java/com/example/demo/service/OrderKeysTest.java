@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderKeysTest {
+
+    private static void assertBetween(String lower, String key, String upper) {
+        if (lower != null) {
+            assertTrue(lower.compareTo(key) < 0, lower + " < " + key);
+        }
+        if (upper != null) {
+            assertTrue(key.compareTo(upper) < 0, key + " < " + upper);
+        }
+        assertFalse(key.endsWith("0"), key);
+    }
+
+    /**
+     * Ключ, проставленный миграцией V6: 'U' + номер по z_index в hex + 'V'.
+     */
+    private static String legacy(long rank) {
+        return "U" + String.format("%011x", rank) + "V";
+    }
+
+    @Test
+    void midpointOfAdjacentKeys() {
+        for (String[] pair : new String[][]{{"a1", "a2"}, {"a", "b"}, {"Zz", "a"}, {"a1", "a1V"}, {"1", "11"}}) {
+            assertBetween(pair[0], OrderKeys.between(pair[0], pair[1]), pair[1]);
+        }
+    }
+
+    @Test
+    void repeatedInsertsBetweenNeighboursStayOrdered() {
+        String lower = "a";
+        String upper = "b";
+        for (int i = 0; i < 200; i++) {
+            String key = OrderKeys.between(lower, upper);
+            assertBetween(lower, key, upper);
+            // попеременно сужаем интервал снизу и сверху
+            if (i % 2 == 0) {
+                lower = key;
+            } else {
+                upper = key;
+            }
+        }
+    }
+
+    @Test
+    void repeatedInsertsAtBothEnds() {
+        // так работают FRONT и BACK: наверх — новый top-ключ, вниз — ключ под минимальным
+        List<String> keys = new ArrayList<>(List.of(OrderKeys.top(1, 0)));
+        for (int i = 0; i < 300; i++) {
+            String bottom = OrderKeys.between(null, keys.get(0));
+            assertBetween(null, bottom, keys.get(0));
+            keys.add(0, bottom);
+
+            String top = OrderKeys.top(i + 2, 0);
+            assertBetween(keys.get(keys.size() - 1), top, null);
+            keys.add(top);
+        }
+        // у нижнего края ключ удлиняется на символ лишь раз в несколько вставок
+        assertTrue(keys.stream().allMatch(key -> key.length() <= 300 / 4), keys.toString());
+    }
+
+    @Test
+    void topKeysGrowWithRevisionAndIndex() {
+        assertTrue(OrderKeys.top(1, 5).compareTo(OrderKeys.top(2, 0)) < 0);
+        assertTrue(OrderKeys.top(7, 0).compareTo(OrderKeys.top(7, 1)) < 0);
+        // ключ между существующими ниже следующего top
+        String between = OrderKeys.between(OrderKeys.top(7, 0), OrderKeys.top(7, 1));
+        assertTrue(between.compareTo(OrderKeys.top(8, 0)) < 0);
+    }
+
+    @Test
+    void legacyKeysSortBelowNewKeysAndAcceptInserts() {
+        String first = legacy(9);
+        String second = legacy(10);
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(legacy(0xfffffffffL).compareTo(OrderKeys.top(0, 0)) < 0);
+
+        assertBetween(first, OrderKeys.between(first, second), second);
+        assertBetween(null, OrderKeys.between(null, legacy(1)), legacy(1));
+        String lastLegacy = legacy(42);
+        assertBetween(lastLegacy, OrderKeys.between(lastLegacy, OrderKeys.top(3, 0)), OrderKeys.top(3, 0));
+    }
+
+    @Test
+    void rejectsKeysOutOfOrderOrEndingWithZero() {
+        assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("b", "a"));
+        assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("a", "a"));
+        assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("a0", "b"));
+    }
+}
@@ -34,6 +34,7 @@ export interface BoardElementDto {
   rotation: number;
 
   zIndex: number;
+  orderKey: string;
 
   groupId?: string | null;
 
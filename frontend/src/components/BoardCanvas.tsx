@@ -324,7 +324,9 @@ const handleStageMouseUp = (e: KonvaEventObject<MouseEvent>) => {
     closeContextMenu();
   };
 
-  const sortedElements = [...elements].sort((a, b) => a.zIndex - b.zIndex);
+  const sortedElements = [...elements].sort((a, b) =>
+    a.orderKey < b.orderKey ? -1 : a.orderKey > b.orderKey ? 1 : 0,
+  );
   const canDragElements = tool === 'SELECT';
 
 const SCALE_BY = 1.05;